@@ -8,7 +8,11 @@ import compression.data.Dataset;
 import compression.data.FolderBasedDataset;
 import compression.data.TrainingDataset;
 import compression.grammar.*;
-import compression.samplegrammars.model.AdaptiveRuleProbModel;
+import compression.parser.SRFParser;
+import compression.parser.StochasticParser;
+import compression.samplegrammars.LeftmostDerivation;
+import compression.samplegrammars.model.AdaptiveCodeLength;
+import compression.samplegrammars.model.FenwickAdaptiveRuleProbModel;
 import compression.samplegrammars.model.RuleProbModel;
 import compression.samplegrammars.model.SemiAdaptiveRuleProbModel;
 import compression.samplegrammars.model.StaticRuleProbModel;
@@ -20,9 +24,10 @@ import java.io.PrintWriter;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 
 /**
@@ -129,12 +134,99 @@ public class Compressions {
         out.close();
     }
 
+    /**
+     * Encodes all RNAs of dataset in as many tasks as the common pool has threads, see {@link #getEncodedLengths};
+     * each task parses with its own parser.
+     */
     public static Map<RNAWithStructure, Integer> getEncodedLengthsParallel(
             final Dataset dataset, final RNAGrammar G, final RuleProbType model, final TrainingDataset trainingDataset) {
-        Map<RNAWithStructure, Integer> encodedLengths = Collections.synchronizedMap(
-                new HashMap<>(dataset.getSize() * 3 / 2));
+        return getEncodedLengths(dataset, G, model, trainingDataset, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Like {@link #getEncodedLengthsParallel}, but splits the RNAs into at most maxTasks tasks,
+     * which run in the fork-join pool of the calling thread (the common pool if the caller is
+     * not a worker of a pool); so callers that run in their own pool keep the work there.
+     * With maxTasks = 1, the RNAs are encoded in the calling thread.
+     */
+    public static Map<RNAWithStructure, Integer> getEncodedLengths(
+            final Dataset dataset, final RNAGrammar G, final RuleProbType model, final TrainingDataset trainingDataset,
+            final int maxTasks) {
+        final Map<Rule, Double> staticRuleProbs = staticRuleProbs(G, model, trainingDataset);
+        final List<RNAWithStructure> rnas = new ArrayList<>(dataset.getSize());
+        dataset.forEach(rnas::add);
+        final int[] lengths = new int[rnas.size()];
+        final int tasks = Math.max(1, Math.min(maxTasks, rnas.size()));
+        List<ForkJoinTask<?>> parts = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            final int first = t;
+            parts.add(ForkJoinTask.adapt(() -> {
+                // one parser per task instead of one per RNA
+                final StochasticParser<PairOfChar> parser = newParser(G, model, staticRuleProbs);
+                for (int i = first; i < rnas.size(); i += tasks) {
+                    lengths[i] = getEncodedLength(rnas.get(i), G, model, staticRuleProbs, parser);
+                }
+            }));
+        }
+        ForkJoinTask.invokeAll(parts);
+        Map<RNAWithStructure, Integer> encodedLengths = new HashMap<>(rnas.size() * 3 / 2);
+        for (int i = 0; i < rnas.size(); i++) encodedLengths.put(rnas.get(i), lengths[i]);
+        return encodedLengths;
+    }
+
+    /**
+     * Like {@link #getBitsPerBase(Map)} of {@link #getEncodedLengths}, for callers that only need the
+     * bits per base if they are below threshold. The RNAs are encoded in chunks of
+     * {@code 4 * maxTasks} RNAs, and after each chunk, the bits per base so far plus a lower bound for the
+     * RNAs not encoded yet are compared with threshold; once they are not below it, encoding stops.
+     * The lower bound of an RNA is {@link BitSizeOnlyArithmeticEncoder#TERMINATION_BITS} per its bases.
+     *
+     * @return the bits per base of dataset, or {@link Double#POSITIVE_INFINITY} if they are not below threshold
+     */
+    public static double getBitsPerBaseBelow(
+            final Dataset dataset, final RNAGrammar G, final RuleProbType model, final TrainingDataset trainingDataset,
+            final int maxTasks, final double threshold) {
+        final Map<Rule, Double> staticRuleProbs = staticRuleProbs(G, model, trainingDataset);
+        // distinct RNAs, as in the map of getEncodedLengths
+        final Set<RNAWithStructure> distinct = new LinkedHashSet<>(dataset.getSize());
+        dataset.forEach(distinct::add);
+        final List<RNAWithStructure> rnas = new ArrayList<>(distinct);
+        final int n = rnas.size();
+        // lowerBounds[i] = lower bound for the sum of the bits per base of RNAs i..n-1
+        final double[] lowerBounds = new double[n + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            lowerBounds[i] = lowerBounds[i + 1]
+                    + ((double) BitSizeOnlyArithmeticEncoder.TERMINATION_BITS) / rnas.get(i).getNumberOfBases();
+        }
+        final int tasks = Math.max(1, maxTasks);
+        final int[] lengths = new int[n];
+        // one parser per task, reused across chunks; the task of a parser runs in one chunk at a time
+        final List<StochasticParser<PairOfChar>> parsers = new ArrayList<>(Collections.nCopies(tasks, null));
+        double sum = 0;
+        for (int from = 0; from < n; from += 4 * tasks) {
+            final int start = from, end = Math.min(n, from + 4 * tasks);
+            List<ForkJoinTask<?>> parts = new ArrayList<>(tasks);
+            for (int t = 0; t < tasks && start + t < end; t++) {
+                final int task = t, first = start + t;
+                parts.add(ForkJoinTask.adapt(() -> {
+                    if (parsers.get(task) == null) parsers.set(task, newParser(G, model, staticRuleProbs));
+                    for (int i = first; i < end; i += tasks) {
+                        lengths[i] = getEncodedLength(rnas.get(i), G, model, staticRuleProbs, parsers.get(task));
+                    }
+                }));
+            }
+            ForkJoinTask.invokeAll(parts);
+            for (int i = start; i < end; i++) sum += ((double) lengths[i]) / rnas.get(i).getNumberOfBases();
+            if (sum + lowerBounds[end] >= threshold * n) return Double.POSITIVE_INFINITY;
+        }
+        Map<RNAWithStructure, Integer> encodedLengths = new HashMap<>(n * 3 / 2);
+        for (int i = 0; i < n; i++) encodedLengths.put(rnas.get(i), lengths[i]);
+        return getBitsPerBase(encodedLengths);
+    }
 
-        // For static models, get rule probabilities once and for all up front
+    /** For static models, gets the rule probabilities once and for all up front; null for other models. */
+    private static Map<Rule, Double> staticRuleProbs(
+            final RNAGrammar G, final RuleProbType model, final TrainingDataset trainingDataset) {
         final Map<Rule, Double> staticRuleProbs;
         try {
             switch (model) {
@@ -159,33 +251,49 @@ public class Compressions {
             }
             throw new RuntimeException(e);
         }
+        return staticRuleProbs;
+    }
 
-        StreamSupport.stream(dataset.spliterator(), true).unordered()
-                .forEach((rnaWithStructure) -> {
-                    final ArithmeticEncoder arithmeticEncoder = new BitSizeOnlyArithmeticEncoder();
-                    final RuleProbModel ruleProbModel;
-                    switch (model) {
-                        case STATIC:
-                        case STATIC_FROM_FILE:
-                            ruleProbModel = new StaticRuleProbModel(G.getGrammar(), staticRuleProbs);
-                            break;
-                        case SEMI_ADAPTIVE:
-                            ruleProbModel = new SemiAdaptiveRuleProbModel(G, rnaWithStructure);
-                            break;
-                        case ADAPTIVE:
-                            ruleProbModel = new AdaptiveRuleProbModel(G);
-                            break;
-                        default:
-                            throw new AssertionError();
-                    }
-                    GenericRNAEncoderForPrecision encoder =
-                            new GenericRNAEncoderForPrecision(
-                                    ruleProbModel, arithmeticEncoder,
-                                    G.getGrammar(), G.getStartSymbol());
-                    int encodedLength = encoder.getPrecisionForRNACode(rnaWithStructure);
-                    encodedLengths.put(rnaWithStructure, encodedLength);
-                });
-        return encodedLengths;
+    /**
+     * @return a parser for the derivations that {@link #getEncodedLength} encodes; as in {@link GenericRNAEncoder},
+     * only static models are used for parsing
+     */
+    private static StochasticParser<PairOfChar> newParser(final RNAGrammar G, final RuleProbType model,
+                                                          final Map<Rule, Double> staticRuleProbs) {
+        return model == RuleProbType.STATIC || model == RuleProbType.STATIC_FROM_FILE
+                ? new SRFParser<>(G, new StaticRuleProbModel(G.getGrammar(), staticRuleProbs))
+                : new SRFParser<>(G, RuleProbModel.DONT_CARE);
+    }
+
+    /** @param parser a parser from {@link #newParser}, which is not used by other threads meanwhile */
+    private static int getEncodedLength(final RNAWithStructure rnaWithStructure, final RNAGrammar G,
+                                        final RuleProbType model, final Map<Rule, Double> staticRuleProbs,
+                                        final StochasticParser<PairOfChar> parser) {
+        if (model == RuleProbType.ADAPTIVE_CLOSED_FORM) {
+            // no need to replay the derivation through the adaptive model
+            return AdaptiveCodeLength.getFinalPrecision(G, LeftmostDerivation.ruleIds(parser, rnaWithStructure));
+        }
+        final ArithmeticEncoder arithmeticEncoder = new BitSizeOnlyArithmeticEncoder();
+        final RuleProbModel ruleProbModel;
+        switch (model) {
+            case STATIC:
+            case STATIC_FROM_FILE:
+                ruleProbModel = new StaticRuleProbModel(G.getGrammar(), staticRuleProbs);
+                break;
+            case SEMI_ADAPTIVE:
+                ruleProbModel = new SemiAdaptiveRuleProbModel(G, rnaWithStructure);
+                break;
+            case ADAPTIVE:
+                ruleProbModel = new FenwickAdaptiveRuleProbModel(G);
+                break;
+            default:
+                throw new AssertionError();
+        }
+        GenericRNAEncoderForPrecision encoder =
+                new GenericRNAEncoderForPrecision(
+                        ruleProbModel, arithmeticEncoder,
+                        G.getGrammar(), G.getStartSymbol(), parser);
+        return encoder.getPrecisionForRNACode(rnaWithStructure);
     }
 
     public static double getBitsPerBase(Map<RNAWithStructure, Integer> encodedLengths) {
@@ -8,6 +8,7 @@ package compression;
 import compression.coding.ArithmeticDecoder;
 import compression.coding.Interval;
 import compression.grammar.*;
+import compression.samplegrammars.model.FenwickAdaptiveRuleProbModel;
 import compression.samplegrammars.model.RuleProbModel;
 import compression.grammar.Category;
 import compression.grammar.NonTerminal;
@@ -43,8 +44,10 @@ public class GenericRNADecoder {
         NonTerminal leftmostNT = startSymbol;
         leftmostDerivation.add(leftmostNT);
         while (leftmostNT != null) {
-            final List<Interval> options = model.getIntervalList(leftmostNT);
-            Interval interval = acDecoder.decodeNext(options);
+            // the Fenwick model lets decoders search its intervals instead of listing them all
+            Interval interval = model instanceof FenwickAdaptiveRuleProbModel fenwickModel
+                    ? acDecoder.decodeNext(fenwickModel.getFrequencies(leftmostNT))
+                    : acDecoder.decodeNext(model.getIntervalList(leftmostNT));
             List<Category> rhs = model.getRhsFor(interval, leftmostNT);
             leftmostNT = replaceFirstNonterminal(leftmostDerivation, rhs);
         }
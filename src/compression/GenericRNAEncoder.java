@@ -14,6 +14,9 @@ import compression.samplegrammars.model.StaticRuleProbModel;
 import java.util.List;
 
 /**
+ * Encodes RNAs by the rules of their leftmost derivations; the model must be a model of grammar,
+ * as rules are passed to it by {@link Grammar#getRuleId(Rule) id}.
+ *
  * @author Sebastian Wild (wild@uwaterloo.ca)
  */
 public class GenericRNAEncoder {
@@ -38,14 +41,32 @@ public class GenericRNAEncoder {
             this.parser = new SRFParser<>(grammar, RuleProbModel.DONT_CARE);
     }
 
+    /**
+     * Encodes with derivations from parser instead of a new parser, e.g., to reuse a parser for many RNAs;
+     * as above, parser must not use a model that adapts to the input.
+     */
+    public GenericRNAEncoder(RuleProbModel model, ArithmeticEncoder acEncoder, RNAGrammar grammar, NonTerminal startSymbol,
+                             StochasticParser<PairOfChar> parser) {
+        this.acEncoder = acEncoder;
+        this.model = model;
+        this.grammar = grammar;
+        this.startSymbol = startSymbol;
+        this.parser = parser;
+    }
+
     public List<Rule> leftmostDerivationFor(RNAWithStructure RNA){
         return LeftmostDerivation.rules(parser, RNA);
     }
 
 
+    /** @return the rule ids of the leftmost derivation of RNA, see {@link Grammar#getRuleId(Rule)} */
+    public int[] leftmostDerivationIdsFor(RNAWithStructure RNA) {
+        return LeftmostDerivation.ruleIds(parser, RNA);
+    }
+
     public String encodeRNA(RNAWithStructure RNA) {
-        for (Rule rule : leftmostDerivationFor(RNA)) {
-            acEncoder.encodeNext(model.getIntervalFor(rule));
+        for (int ruleId : leftmostDerivationIdsFor(RNA)) {
+            acEncoder.encodeNext(model.getIntervalFor(ruleId));
         }
         return acEncoder.getFinalEncoding();
     }
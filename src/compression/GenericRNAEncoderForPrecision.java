@@ -8,6 +8,7 @@ import compression.samplegrammars.model.RuleProbModel;
 import compression.grammar.NonTerminal;
 import compression.grammar.Grammar;
 import compression.grammar.Rule;
+import compression.parser.StochasticParser;
 
 
 public class GenericRNAEncoderForPrecision extends GenericRNAEncoder {
@@ -16,9 +17,14 @@ public class GenericRNAEncoderForPrecision extends GenericRNAEncoder {
         super(model, acEncoder, grammar, startSymbol);
     }
 
+    public GenericRNAEncoderForPrecision(RuleProbModel model, ArithmeticEncoder acEncoder, RNAGrammar grammar, NonTerminal startSymbol,
+                                         StochasticParser<PairOfChar> parser) {
+        super(model, acEncoder, grammar, startSymbol, parser);
+    }
+
     public int getPrecisionForRNACode(RNAWithStructure RNA) {
-        for (Rule rule : leftmostDerivationFor(RNA )) {
-            acEncoder.encodeNext(model.getIntervalFor(rule));
+        for (int ruleId : leftmostDerivationIdsFor(RNA)) {
+            acEncoder.encodeNext(model.getIntervalFor(ruleId));
         }
         return acEncoder.getFinalPrecision();
     }
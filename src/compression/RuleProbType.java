@@ -3,7 +3,12 @@ package compression;
 public enum RuleProbType {
 
     STATIC("static"), ADAPTIVE("adaptive"), SEMI_ADAPTIVE("semi-adaptive"),
-    STATIC_FROM_FILE("static-from-file");
+    STATIC_FROM_FILE("static-from-file"),
+    /**
+     * the adaptive model, with code lengths computed from the rule counts of the derivation,
+     * see {@link compression.samplegrammars.model.AdaptiveCodeLength}
+     */
+    ADAPTIVE_CLOSED_FORM("adaptive-closed-form");
 
     private String name;
 
@@ -30,6 +35,9 @@ public enum RuleProbType {
             case "adaptive":
             case "ADAPTIVE":
                 return ADAPTIVE;
+            case "adaptive-closed-form":
+            case "ADAPTIVE_CLOSED_FORM":
+                return ADAPTIVE_CLOSED_FORM;
             case "semi-adaptive":
             case "SEMI_ADAPTIVE":
             case "SEMI-ADAPTIVE":
@@ -0,0 +1,80 @@
+package compression.coding;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Throughput of {@link ExactArithmeticEncoder} and {@link IntegerArithmeticEncoder} (with their
+ * decoders) on random sequences of intervals of the kind the rule probability models produce.
+ * <p>
+ * Usage: {@code ArithmeticCoderBenchmark [length ...]}, the numbers of intervals per sequence
+ * (default 250 500 1000).
+ */
+public class ArithmeticCoderBenchmark {
+
+	public static void main(String[] args) {
+		int[] lengths = args.length > 0
+				? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+				: new int[] {250, 500, 1000};
+		// warm-up
+		run("integer", 20000, IntegerArithmeticEncoder::new, IntegerArithmeticDecoder::new, false);
+		run("exact", 200, ExactArithmeticEncoder::new, ExactArithmeticDecoder::new, false);
+		for (int length : lengths) {
+			run("exact", length, ExactArithmeticEncoder::new, ExactArithmeticDecoder::new, true);
+			run("integer", length, IntegerArithmeticEncoder::new, IntegerArithmeticDecoder::new, true);
+		}
+	}
+
+	private static void run(final String name, final int length, final Supplier<ArithmeticEncoder> encoders,
+	                        final Function<String, ArithmeticDecoder> decoders, final boolean print) {
+		Random random = new Random(length);
+		List<List<Interval>> partitions = new ArrayList<>(length);
+		List<Interval> intervals = new ArrayList<>(length);
+		for (int i = 0; i < length; i++) {
+			List<Interval> partition = partition(random, 2 + random.nextInt(10));
+			partitions.add(partition);
+			intervals.add(partition.get(random.nextInt(partition.size())));
+		}
+
+		long start = System.nanoTime();
+		ArithmeticEncoder encoder = encoders.get();
+		for (Interval interval : intervals) encoder.encodeNext(interval);
+		String bits = encoder.getFinalEncoding();
+		long encoded = System.nanoTime();
+		ArithmeticDecoder decoder = decoders.apply(bits);
+		for (int i = 0; i < length; i++) {
+			if (!decoder.decodeNext(partitions.get(i)).equals(intervals.get(i))) {
+				throw new AssertionError(name + " decoded a wrong interval at " + i);
+			}
+		}
+		long decoded = System.nanoTime();
+		if (print) {
+			System.out.printf("%-8s %7d intervals  %8d bits  encode %9.1f ms (%10.0f intervals/s)  decode %9.1f ms (%10.0f intervals/s)%n",
+					name, length, bits.length(),
+					(encoded - start) / 1e6, length / ((encoded - start) / 1e9),
+					(decoded - encoded) / 1e6, length / ((decoded - encoded) / 1e9));
+		}
+	}
+
+	/** @return a partition of [0,1) into k intervals with random counts, rounded like the adaptive model */
+	private static List<Interval> partition(final Random random, final int k) {
+		long[] counts = new long[k];
+		long total = 0;
+		for (int i = 0; i < k; i++) total += counts[i] = 1 + random.nextInt(100);
+		List<Interval> partition = new ArrayList<>(k);
+		long left = 0;
+		for (int i = 0; i < k; i++) {
+			partition.add(new BigDecimalInterval(
+					BigDecimal.valueOf(left).divide(BigDecimal.valueOf(total), 10, RoundingMode.DOWN),
+					BigDecimal.valueOf(counts[i]).divide(BigDecimal.valueOf(total), 10, RoundingMode.DOWN)));
+			left += counts[i];
+		}
+		return partition;
+	}
+}
@@ -12,5 +12,13 @@ import java.util.List;
 public interface ArithmeticDecoder {
 
     Interval decodeNext(List<Interval> options );
-    
+
+    /**
+     * Decodes the next interval among options that can be searched by cumulative frequency;
+     * by default, like {@link #decodeNext(List)} on all of them.
+     */
+    default Interval decodeNext(CumulativeFrequencies options) {
+        return decodeNext(options.getIntervals());
+    }
+
 }
@@ -3,7 +3,6 @@ package compression.coding;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
-import java.util.Objects;
 
 /**
  * A half-open interval [a,b) on the real line, represented by BigDecimal values
@@ -71,14 +70,15 @@ public class BigDecimalInterval implements Interval {
 	@Override
 	public boolean equals(final Object o) {
 		if (this == o) return true;
-		if (o == null || getClass() != o.getClass()) return false;
-		final BigDecimalInterval that = (BigDecimalInterval) o;
-		return lowerBound.compareTo(that.lowerBound) == 0
-				&& length.compareTo(that.length) == 0;
+		// equal to intervals of other classes with the same bounds, see FrequencyInterval
+		if (!(o instanceof Interval)) return false;
+		final Interval that = (Interval) o;
+		return lowerBound.compareTo(that.getLowerBound()) == 0
+				&& length.compareTo(that.getLength()) == 0;
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(lowerBound, length);
+		return Interval.hashCodeOfBounds(this);
 	}
 }
@@ -5,6 +5,9 @@ package compression.coding;
  */
 public class BitSizeOnlyArithmeticEncoder implements ArithmeticEncoder {
 
+	/** bits added to terminate the code; so every final precision is at least this */
+	public static final int TERMINATION_BITS = 4;
+
 	double lnLength;
 
 	@Override
@@ -14,7 +17,7 @@ public class BitSizeOnlyArithmeticEncoder implements ArithmeticEncoder {
 
 	@Override
 	public int getFinalPrecision() {
-		return (int) (((-lnLength) / Math.log(2.0))+4);
+		return (int) (((-lnLength) / Math.log(2.0))+TERMINATION_BITS);
 	}
 
 
@@ -0,0 +1,23 @@
+package compression.coding;
+
+import java.util.List;
+
+/**
+ * The {@link FrequencyInterval}s of a set of symbols with the same total frequency, which can be
+ * searched by cumulative frequency. Decoders that know the cumulative frequency of the next
+ * symbol, such as {@link IntegerArithmeticDecoder}, find its interval without looking at all options.
+ */
+public interface CumulativeFrequencies {
+
+	/** @return the total frequency of all symbols */
+	long getTotal();
+
+	/**
+	 * @param cumFreq a cumulative frequency with {@code 0 <= cumFreq < getTotal()}
+	 * @return the interval [cumLow, cumLow + freq) of the symbol that contains cumFreq
+	 */
+	FrequencyInterval getIntervalContaining(long cumFreq);
+
+	/** @return the intervals of all symbols */
+	List<Interval> getIntervals();
+}
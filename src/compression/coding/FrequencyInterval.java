@@ -0,0 +1,118 @@
+package compression.coding;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * The interval [cumLow / total, (cumLow + freq) / total) of a symbol with frequency freq among
+ * symbols with total frequency total, where cumLow is the total frequency of the symbols before it.
+ * <p>
+ * Integer coders such as {@link IntegerArithmeticEncoder} use the frequencies directly. The
+ * {@link BigDecimal} bounds are only computed when asked for, rounded down to {@code scale}
+ * decimal digits like the probabilities of the rule probability models; {@link #getLnLength()}
+ * is the logarithm of that rounded length, as for a {@link BigDecimalInterval} of the same bounds,
+ * but computed without {@link BigDecimal}s where possible.
+ * <p>
+ * Intervals are equal to other intervals, of any class, with equal (rounded) bounds.
+ */
+public class FrequencyInterval implements Interval {
+
+	/** largest scale with 10^scale below 2^53 */
+	private static final int MAX_LONG_SCALE = 15;
+	private static final long[] POWERS_OF_TEN = new long[MAX_LONG_SCALE + 1];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) POWERS_OF_TEN[i] = 10 * POWERS_OF_TEN[i - 1];
+	}
+
+	private final long cumLow, freq, total;
+	private final int scale;
+	private BigDecimal lowerBound, length;
+	private double lnLength = Double.NaN;
+
+	/**
+	 * @param scale number of decimal digits that the bounds are rounded down to
+	 */
+	public FrequencyInterval(final long cumLow, final long freq, final long total, final int scale) {
+		if (cumLow < 0 || freq <= 0 || cumLow + freq > total) {
+			throw new IllegalArgumentException("No subinterval of [0," + total + "): [" + cumLow + "," + (cumLow + freq) + ")");
+		}
+		this.cumLow = cumLow;
+		this.freq = freq;
+		this.total = total;
+		this.scale = scale;
+	}
+
+	public long getCumLow() {
+		return cumLow;
+	}
+
+	public long getFreq() {
+		return freq;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	@Override
+	public BigDecimal getLowerBound() {
+		if (lowerBound == null) lowerBound = fraction(cumLow);
+		return lowerBound;
+	}
+
+	@Override
+	public BigDecimal getLength() {
+		if (length == null) length = fraction(freq);
+		return length;
+	}
+
+	@Override
+	public BigDecimal getUpperBound() {
+		return getLowerBound().add(getLength());
+	}
+
+	@Override
+	public double getLnLength() {
+		if (Double.isNaN(lnLength)) {
+			if (scale <= MAX_LONG_SCALE && freq <= Long.MAX_VALUE / POWERS_OF_TEN[scale]) {
+				// floor(freq / total * 10^scale) and 10^scale are exact doubles, and their quotient is
+				// rounded like BigDecimal.doubleValue() of the rounded length
+				lnLength = Math.log((double) (freq * POWERS_OF_TEN[scale] / total) / POWERS_OF_TEN[scale]);
+			} else {
+				lnLength = Math.log(getLength().doubleValue());
+			}
+		}
+		return lnLength;
+	}
+
+	private BigDecimal fraction(final long numerator) {
+		return BigDecimal.valueOf(numerator).divide(BigDecimal.valueOf(total), scale, RoundingMode.DOWN);
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		if (this == o) return true;
+		if (o instanceof FrequencyInterval that && total == that.total && scale == that.scale) {
+			return cumLow == that.cumLow && freq == that.freq;
+		}
+		if (!(o instanceof Interval that)) return false;
+		return getLowerBound().compareTo(that.getLowerBound()) == 0
+				&& getLength().compareTo(that.getLength()) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		return Interval.hashCodeOfBounds(this);
+	}
+
+	@Override
+	public String toString() {
+		return "FrequencyInterval(" +
+				"cumLow=" + cumLow +
+				", freq=" + freq +
+				", total=" + total +
+				')';
+	}
+}
@@ -0,0 +1,97 @@
+package compression.coding;
+
+import java.util.List;
+
+import static compression.coding.IntegerArithmeticEncoder.HALF;
+import static compression.coding.IntegerArithmeticEncoder.QUARTER;
+import static compression.coding.IntegerArithmeticEncoder.STATE_BITS;
+import static compression.coding.IntegerArithmeticEncoder.TOP;
+import static compression.coding.IntegerArithmeticEncoder.TOTAL;
+import static compression.coding.IntegerArithmeticEncoder.cumHigh;
+import static compression.coding.IntegerArithmeticEncoder.cumLow;
+import static compression.coding.IntegerArithmeticEncoder.total;
+
+/**
+ * Decoder for {@link IntegerArithmeticEncoder}: it follows the integer interval of the encoder,
+ * and keeps the {@value IntegerArithmeticEncoder#STATE_BITS} bits of the encoding that are
+ * aligned with it.
+ */
+public class IntegerArithmeticDecoder implements ArithmeticDecoder {
+
+	private final String encodedBits;
+	/** index of the next bit of encodedBits to read */
+	private int next = 0;
+	private long low = 0, high = TOP - 1;
+	private long value = 0;
+
+	public IntegerArithmeticDecoder(final String encodedBits) {
+		this.encodedBits = encodedBits;
+		for (int i = 0; i < STATE_BITS; i++) value = 2 * value + nextBit();
+	}
+
+	/** @return the next bit of the encoding, 0 after its end */
+	private int nextBit() {
+		return next < encodedBits.length() && encodedBits.charAt(next++) == '1' ? 1 : 0;
+	}
+
+	@Override
+	public Interval decodeNext(final List<Interval> options) {
+		long range = high - low + 1;
+		for (Interval interval : options) {
+			long total = total(interval);
+			// largest target with low + range * target / total <= value
+			long target = ((value - low + 1) * total - 1) / range;
+			long cumLow = cumLow(interval), cumHigh = cumHigh(interval);
+			if (cumLow <= target && target < cumHigh) {
+				narrow(cumLow, cumHigh, total);
+				return interval;
+			}
+		}
+		throw new IllegalArgumentException("Interval not found!");
+	}
+
+	/**
+	 * Computes the target frequency once and searches for the interval containing it,
+	 * instead of checking each option in turn.
+	 */
+	@Override
+	public Interval decodeNext(final CumulativeFrequencies options) {
+		long total = options.getTotal();
+		// the encoder scales larger totals, so these intervals do not have integer bounds here
+		if (total > TOTAL) return decodeNext(options.getIntervals());
+		long target = ((value - low + 1) * total - 1) / (high - low + 1);
+		if (target < 0 || target >= total) throw new IllegalArgumentException("Interval not found!");
+		FrequencyInterval interval = options.getIntervalContaining(target);
+		narrow(interval.getCumLow(), interval.getCumLow() + interval.getFreq(), total);
+		return interval;
+	}
+
+	/** narrows the current interval to its part [cumLow / total, cumHigh / total) */
+	private void narrow(final long cumLow, final long cumHigh, final long total) {
+		long range = high - low + 1;
+		high = low + range * cumHigh / total - 1;
+		low = low + range * cumLow / total;
+		renormalize();
+	}
+
+	private void renormalize() {
+		while (true) {
+			if (high < HALF) {
+				// nothing to subtract
+			} else if (low >= HALF) {
+				value -= HALF;
+				low -= HALF;
+				high -= HALF;
+			} else if (low >= QUARTER && high < HALF + QUARTER) {
+				value -= QUARTER;
+				low -= QUARTER;
+				high -= QUARTER;
+			} else {
+				break;
+			}
+			low = 2 * low;
+			high = 2 * high + 1;
+			value = 2 * value + nextBit();
+		}
+	}
+}
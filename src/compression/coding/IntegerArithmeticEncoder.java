@@ -0,0 +1,113 @@
+package compression.coding;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Arithmetic encoder on 32-bit integer ranges, with bitwise renormalization and without
+ * carries (the classic coder of Witten, Neal and Cleary).
+ * <p>
+ * The current interval is kept as integers {@code [low, high]} in {@code [0, 2^32)}. Each
+ * encoded interval is given as integer bounds {@code [cumLow, cumHigh)} of a total: a
+ * {@link FrequencyInterval} with a total of at most {@link #TOTAL} {@code = 2^30} as it is,
+ * other intervals scaled to {@code TOTAL}. The current interval is narrowed to the corresponding part.
+ * Whenever the current interval lies in one half of {@code [0, 2^32)}, the bit of that half is
+ * known and written; when it straddles the midpoint within the middle half, the bit is not known
+ * yet and pending. Either way, the interval is doubled, so it always spans more than a quarter
+ * of {@code [0, 2^32)} and every interval of at least {@code 1 / TOTAL} gets a nonempty part.
+ * <p>
+ * Unlike {@link ExactArithmeticEncoder}, encoding takes constant time per interval, at the
+ * price of rounding other probabilities than frequencies to multiples of {@code 1 / TOTAL}; the encoding is at
+ * most about 2 bits longer than the exact one. It is decoded by {@link IntegerArithmeticDecoder}.
+ */
+public class IntegerArithmeticEncoder implements ArithmeticEncoder {
+
+	static final int STATE_BITS = 32;
+	static final long TOP = 1L << STATE_BITS;
+	static final long HALF = TOP >>> 1;
+	static final long QUARTER = TOP >>> 2;
+	/** number of units that the interval [0,1) of probabilities is scaled to */
+	static final long TOTAL = 1L << (STATE_BITS - 2);
+	private static final BigDecimal TOTAL_DECIMAL = BigDecimal.valueOf(TOTAL);
+
+	private long low = 0, high = TOP - 1;
+	/** number of bits whose value is the opposite of the next written bit */
+	private int pending = 0;
+	private final StringBuilder bits = new StringBuilder();
+
+	@Override
+	public void encodeNext(final Interval interval) {
+		long cumLow = cumLow(interval), cumHigh = cumHigh(interval), total = total(interval);
+		if (cumHigh <= cumLow) {
+			throw new IllegalArgumentException("Interval too short for the precision of the coder: " + interval);
+		}
+		long range = high - low + 1;
+		high = low + range * cumHigh / total - 1;
+		low = low + range * cumLow / total;
+		while (true) {
+			if (high < HALF) {
+				write('0');
+			} else if (low >= HALF) {
+				write('1');
+				low -= HALF;
+				high -= HALF;
+			} else if (low >= QUARTER && high < HALF + QUARTER) {
+				++pending;
+				low -= QUARTER;
+				high -= QUARTER;
+			} else {
+				break;
+			}
+			low = 2 * low;
+			high = 2 * high + 1;
+		}
+	}
+
+	private void write(final char bit) {
+		bits.append(bit);
+		for (; pending > 0; --pending) bits.append(bit == '0' ? '1' : '0');
+	}
+
+	/**
+	 * The encoding ends with the bits of 1/4 or 1/2, whichever is in the current interval, after
+	 * the pending bits; trailing 0s are dropped, the decoder reads missing bits as 0.
+	 */
+	@Override
+	public String getFinalEncoding() {
+		StringBuilder res = new StringBuilder(bits);
+		if (low < QUARTER) {
+			res.append('0');
+			for (int i = 0; i <= pending; i++) res.append('1');
+		} else {
+			res.append('1');
+		}
+		return res.toString();
+	}
+
+	@Override
+	public int getFinalPrecision() {
+		return bits.length() + (low < QUARTER ? pending + 2 : 1);
+	}
+
+	/** @return the total that the bounds of interval are given in */
+	static long total(final Interval interval) {
+		return interval instanceof FrequencyInterval f && f.getTotal() <= TOTAL ? f.getTotal() : TOTAL;
+	}
+
+	/** @return the lower bound of interval in units of {@link #total} */
+	static long cumLow(final Interval interval) {
+		return interval instanceof FrequencyInterval f && f.getTotal() <= TOTAL
+				? f.getCumLow() : scaled(interval.getLowerBound());
+	}
+
+	/** @return the upper bound of interval in units of {@link #total} */
+	static long cumHigh(final Interval interval) {
+		return interval instanceof FrequencyInterval f && f.getTotal() <= TOTAL
+				? f.getCumLow() + f.getFreq() : scaled(interval.getUpperBound());
+	}
+
+	/** @return floor(x * TOTAL), for x in [0,1] */
+	private static long scaled(final BigDecimal x) {
+		return x.multiply(TOTAL_DECIMAL).setScale(0, RoundingMode.FLOOR).longValueExact();
+	}
+}
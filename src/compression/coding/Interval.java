@@ -2,6 +2,7 @@ package compression.coding;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Represents an interval of the form [lowerBound, upperBound) with length
@@ -30,4 +31,12 @@ public interface Interval {
         }
         throw new IllegalArgumentException("Interval not found!");
     }
+
+    /**
+     * @return a hash code of the bounds of interval that does not depend on their scale, so that
+     * intervals of any class with bounds equal by {@link BigDecimal#compareTo} have the same hash code
+     */
+    static int hashCodeOfBounds(Interval interval) {
+        return Objects.hash(interval.getLowerBound().stripTrailingZeros(), interval.getLength().stripTrailingZeros());
+    }
 }
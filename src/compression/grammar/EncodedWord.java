@@ -0,0 +1,122 @@
+package compression.grammar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Compact, immutable representation of a word of terminals: one byte per letter, the symbol,
+ * which is the position of the letter in the alphabet of the distinct letters of the word
+ * (in order of first occurrence).
+ * <p>
+ * Parsers can map the (few) letters of the alphabet to their own terminals once per word instead
+ * of comparing every letter of the word, see {@link compression.parser.SRFParser#parsable(EncodedWord)}.
+ *
+ * @see RNAWithStructure#encoded()
+ * @see RNAWithStructure#encodedSecondaryStructure()
+ */
+public final class EncodedWord<T> {
+
+	/** Largest number of distinct letters in a word. */
+	public static final int MAX_ALPHABET_SIZE = 256;
+
+	private final byte[] symbols;
+	private final List<Terminal<T>> alphabet;
+
+	private EncodedWord(final byte[] symbols, final List<Terminal<T>> alphabet) {
+		this.symbols = symbols;
+		this.alphabet = Collections.unmodifiableList(alphabet);
+	}
+
+	/**
+	 * Encodes word; letters that are equal share a symbol.
+	 *
+	 * @throws IllegalArgumentException if word has more than {@link #MAX_ALPHABET_SIZE} distinct letters
+	 */
+	public static <T> EncodedWord<T> of(final List<Terminal<T>> word) {
+		Map<Terminal<T>, Integer> symbolOf = new HashMap<>();
+		List<Terminal<T>> alphabet = new ArrayList<>();
+		byte[] symbols = new byte[word.size()];
+		for (int i = 0; i < symbols.length; i++) {
+			Terminal<T> letter = word.get(i);
+			Integer symbol = symbolOf.get(letter);
+			if (symbol == null) {
+				symbol = newSymbol(alphabet, letter);
+				symbolOf.put(letter, symbol);
+			}
+			symbols[i] = (byte) (int) symbol;
+		}
+		return new EncodedWord<>(symbols, alphabet);
+	}
+
+	/**
+	 * Encodes the word of length n whose letters are identified by keyAt, without creating
+	 * a terminal for each letter.
+	 *
+	 * @param keyAt the key of the letter at a position; positions with the same key share a symbol
+	 * @param terminalAt the terminal for the letter at a position, called once per distinct key
+	 */
+	static <T> EncodedWord<T> encode(final int n, final IntUnaryOperator keyAt, final IntFunction<Terminal<T>> terminalAt) {
+		int[] keys = new int[MAX_ALPHABET_SIZE];
+		List<Terminal<T>> alphabet = new ArrayList<>();
+		byte[] symbols = new byte[n];
+		for (int i = 0; i < n; i++) {
+			int key = keyAt.applyAsInt(i);
+			int symbol = 0;
+			while (symbol < alphabet.size() && keys[symbol] != key) symbol++;
+			if (symbol == alphabet.size()) {
+				newSymbol(alphabet, terminalAt.apply(i));
+				keys[symbol] = key;
+			}
+			symbols[i] = (byte) symbol;
+		}
+		return new EncodedWord<>(symbols, alphabet);
+	}
+
+	private static <T> int newSymbol(final List<Terminal<T>> alphabet, final Terminal<T> letter) {
+		if (alphabet.size() == MAX_ALPHABET_SIZE)
+			throw new IllegalArgumentException("more than " + MAX_ALPHABET_SIZE + " distinct letters in word");
+		alphabet.add(letter);
+		return alphabet.size() - 1;
+	}
+
+	/** @return the number of letters of this word */
+	public int length() {
+		return symbols.length;
+	}
+
+	/** @return the symbol of the letter at position i, i.e., its position in {@link #alphabet()} */
+	public int symbolAt(final int i) {
+		return symbols[i] & 0xFF;
+	}
+
+	/** @return the distinct letters of this word, indexed by symbol */
+	public List<Terminal<T>> alphabet() {
+		return alphabet;
+	}
+
+	/** @return the letter at position i */
+	public Terminal<T> terminalAt(final int i) {
+		return alphabet.get(symbolAt(i));
+	}
+
+	/** @return this word as a (new, mutable) list of terminals, which share the alphabet's terminal objects */
+	public List<Terminal<T>> asTerminals() {
+		List<Terminal<T>> res = new ArrayList<>(symbols.length);
+		for (int i = 0; i < symbols.length; i++) {
+			res.add(terminalAt(i));
+		}
+		return res;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < symbols.length; i++) sb.append(terminalAt(i));
+		return sb.toString();
+	}
+}
@@ -17,6 +17,10 @@ import java.util.stream.Collectors;
  * maintained in the order of insertion.
  *
  * Once the Grammar is instantiated, it is immutable.
+ *
+ * Each nonterminal gets a dense {@link #getNonTerminalIndex(NonTerminal) index} and each rule a dense
+ * {@link #getRuleId(Rule) id}, so that per-rule data can be kept in arrays. The rules of a nonterminal
+ * have consecutive ids, in the order of {@link #getRules(NonTerminal)}.
  */
 public class Grammar<T> {
     @SuppressWarnings("WeakerAccess")
@@ -28,6 +32,15 @@ public class Grammar<T> {
 
     private final Set<NonTerminal> nonTerminals = new HashSet<>();
 
+    private final NonTerminal[] nonTerminalsByIndex;
+    private final Map<NonTerminal, Integer> nonTerminalIndices = new HashMap<>();
+    private final Rule[] rulesById;
+    private final Map<Rule, Integer> ruleIds = new HashMap<>();
+    /** the rules of the nonterminal with index i have the ids from firstRuleIds[i] to firstRuleIds[i + 1] (excl.) */
+    private final int[] firstRuleIds;
+    /** the index of the left side of each rule, by id */
+    private final int[] leftIndices;
+
     public NonTerminal getStartSymbol() {
         return startSymbol;
     }
@@ -53,6 +66,20 @@ public class Grammar<T> {
         if (!nonTerminals.contains(startSymbol)) throw new IllegalArgumentException("Start symbol is not in nonTerminals");
         if (!rules.containsKey(startSymbol)) throw new IllegalArgumentException("Start symbol has no rules");
 
+        nonTerminalsByIndex = nonTerminals.toArray(NonTerminal[]::new);
+        rulesById = new Rule[rules.values().size()];
+        firstRuleIds = new int[nonTerminalsByIndex.length + 1];
+        leftIndices = new int[rulesById.length];
+        for (int index = 0; index < nonTerminalsByIndex.length; index++) {
+            nonTerminalIndices.put(nonTerminalsByIndex[index], index);
+            int id = firstRuleIds[index];
+            for (Rule rule : getRules(nonTerminalsByIndex[index])) {
+                rulesById[id] = rule;
+                leftIndices[id] = index;
+                ruleIds.put(rule, id++);
+            }
+            firstRuleIds[index + 1] = id;
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -134,6 +161,39 @@ public class Grammar<T> {
         return nonTerminals;
     }
 
+    /** @return the index of nonTerminal in [0, number of nonterminals), or -1 if it is not in this grammar */
+    public int getNonTerminalIndex(final NonTerminal nonTerminal) {
+        return nonTerminalIndices.getOrDefault(nonTerminal, -1);
+    }
+
+    public NonTerminal getNonTerminal(final int index) {
+        return nonTerminalsByIndex[index];
+    }
+
+    /** @return the id of rule in [0, {@link #size()}), or -1 if it is not in this grammar */
+    public int getRuleId(final Rule rule) {
+        return ruleIds.getOrDefault(rule, -1);
+    }
+
+    public Rule getRule(final int ruleId) {
+        return rulesById[ruleId];
+    }
+
+    /** @return the index of the left side of the rule with the given id */
+    public int getLeftIndex(final int ruleId) {
+        return leftIndices[ruleId];
+    }
+
+    /** @return the smallest id of the rules of the nonterminal with the given index */
+    public int getFirstRuleId(final int nonTerminalIndex) {
+        return firstRuleIds[nonTerminalIndex];
+    }
+
+    /** @return one more than the largest id of the rules of the nonterminal with the given index */
+    public int getEndRuleId(final int nonTerminalIndex) {
+        return firstRuleIds[nonTerminalIndex + 1];
+    }
+
 
 
 
@@ -1,6 +1,5 @@
 package compression.grammar;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
@@ -12,6 +11,10 @@ public class RNAWithStructure {
 	public final String primaryStructure, secondaryStructure;
 	public final String name;
 
+	/** cached encodings, computed on first use; racy but benign as {@link EncodedWord} is immutable */
+	private EncodedWord<PairOfChar> encoded;
+	private EncodedWord<Character> encodedSecondaryStructure;
+
 	public RNAWithStructure(final String primaryStructure, final String secondaryStructure) {
 		this(primaryStructure, secondaryStructure, "N/A");
 	}
@@ -34,12 +37,19 @@ public class RNAWithStructure {
 	}
 
 	public List<Terminal<PairOfChar>> asTerminals() {
-		List<Terminal<PairOfChar>> tokens = new ArrayList<>();
-		int n = primaryStructure.length();
-		for (int i = 0; i < n; ++i) {
-			tokens.add(new PairOfChar(primaryStructure.charAt(i), secondaryStructure.charAt(i)).asTerminal());
+		return encoded().asTerminals();
+	}
+
+	/** @return this RNA as word of {@link PairOfChar} terminals (as in {@link #asTerminals()}), cached */
+	public EncodedWord<PairOfChar> encoded() {
+		EncodedWord<PairOfChar> res = encoded;
+		if (res == null) {
+			res = EncodedWord.encode(primaryStructure.length(),
+					i -> primaryStructure.charAt(i) << Character.SIZE | secondaryStructure.charAt(i),
+					i -> new PairOfChar(primaryStructure.charAt(i), secondaryStructure.charAt(i)).asTerminal());
+			encoded = res;
 		}
-		return tokens;
+		return res;
 	}
 
 	@Override
@@ -71,12 +81,18 @@ public class RNAWithStructure {
 	}
 
 	public List<Terminal<Character>> secondaryStructureAsTerminals() {
-		List<Terminal<Character>> tokens = new ArrayList<>();
-		int n = primaryStructure.length();
-		for (int i = 0; i < n; ++i) {
-			tokens.add(new CharTerminal(secondaryStructure.charAt(i)));
+		return encodedSecondaryStructure().asTerminals();
+	}
+
+	/** @return the secondary structure as word of {@link CharTerminal}s (as in {@link #secondaryStructureAsTerminals()}), cached */
+	public EncodedWord<Character> encodedSecondaryStructure() {
+		EncodedWord<Character> res = encodedSecondaryStructure;
+		if (res == null) {
+			res = EncodedWord.encode(secondaryStructure.length(), secondaryStructure::charAt,
+					i -> new CharTerminal(secondaryStructure.charAt(i)));
+			encodedSecondaryStructure = res;
 		}
-		return tokens;
+		return res;
 	}
 
 
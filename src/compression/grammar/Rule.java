@@ -26,7 +26,8 @@ public class Rule {
 
     public final NonTerminal left;
     public final Category[] right;
-
+    /** cached, since rules are looked up in hash maps whenever they are used */
+    private final int hashCode;
 
 
     /**
@@ -56,6 +57,7 @@ public class Rule {
 
         this.left = left;
         this.right = right.clone();
+        this.hashCode = 31 * Objects.hash(left) + Arrays.hashCode(right);
 
     }
 
@@ -90,14 +92,12 @@ public class Rule {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Rule rule = (Rule) o;
-        return left.equals(rule.left) && Arrays.equals(right, rule.right);
+        return hashCode == rule.hashCode && left.equals(rule.left) && Arrays.equals(right, rule.right);
     }
 
     @Override
     public int hashCode() {
-        int result = Objects.hash(left);
-        result = 31 * result + Arrays.hashCode(right);
-        return result;
+        return hashCode;
     }
 
 
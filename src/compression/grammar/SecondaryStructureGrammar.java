@@ -31,6 +31,11 @@ public class SecondaryStructureGrammar extends Grammar<Character> {
 		return new SecondaryStructureGrammar(G.name, G.startSymbol, G.rules);
 	}
 
+	/** creates a shallow copy of this grammar with the given name */
+	public SecondaryStructureGrammar withName(final String name) {
+		return new SecondaryStructureGrammar(name, this.startSymbol, this.rules);
+	}
+
 	/**
 	 * Attempts to convers this grammar to SRF normal form.
 	 * Currently this only mean splitting rules with long right-hand sides into a sequence of rules.
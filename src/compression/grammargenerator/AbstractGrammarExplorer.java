@@ -48,13 +48,45 @@ public class AbstractGrammarExplorer {
 		out.flush();
 	}
 
+	/**
+	 * @param model {@link RuleProbType#ADAPTIVE}, {@link RuleProbType#SEMI_ADAPTIVE}, or
+	 *              {@link RuleProbType#ADAPTIVE_CLOSED_FORM} for the adaptive code lengths computed
+	 *              from rule counts, which are faster and nearly always the same
+	 */
 	public static double getBitsPerBase(final Dataset dataset, final RuleProbType model, final SecondaryStructureGrammar grammar, final boolean withNonCanonicalRules) {
-		assert model == RuleProbType.ADAPTIVE || model == RuleProbType.SEMI_ADAPTIVE;
+		assert model == RuleProbType.ADAPTIVE || model == RuleProbType.SEMI_ADAPTIVE || model == RuleProbType.ADAPTIVE_CLOSED_FORM;
 		RNAGrammar rnaGrammar = RNAGrammar.from(grammar, withNonCanonicalRules);
 		return Compressions.getBitsPerBase(Compressions.getEncodedLengthsParallel(
 				dataset, rnaGrammar, model, null));
 	}
 
+	/**
+	 * Like {@link #getBitsPerBase(Dataset, RuleProbType, SecondaryStructureGrammar, boolean)}, but encodes
+	 * the RNAs in at most maxTasks tasks of the calling thread's fork-join pool,
+	 * see {@link Compressions#getEncodedLengths}.
+	 */
+	public static double getBitsPerBase(final Dataset dataset, final RuleProbType model, final SecondaryStructureGrammar grammar,
+	                                    final boolean withNonCanonicalRules, final int maxTasks) {
+		assert model == RuleProbType.ADAPTIVE || model == RuleProbType.SEMI_ADAPTIVE || model == RuleProbType.ADAPTIVE_CLOSED_FORM;
+		RNAGrammar rnaGrammar = RNAGrammar.from(grammar, withNonCanonicalRules);
+		return Compressions.getBitsPerBase(Compressions.getEncodedLengths(
+				dataset, rnaGrammar, model, null, maxTasks));
+	}
+
+	/**
+	 * Like {@link #getBitsPerBase(Dataset, RuleProbType, SecondaryStructureGrammar, boolean, int)}, but
+	 * stops encoding once the bits per base are certainly not below threshold,
+	 * see {@link Compressions#getBitsPerBaseBelow}.
+	 *
+	 * @return the bits per base, or {@link Double#POSITIVE_INFINITY} if they are not below threshold
+	 */
+	public static double getBitsPerBaseBelow(final Dataset dataset, final RuleProbType model, final SecondaryStructureGrammar grammar,
+	                                         final boolean withNonCanonicalRules, final int maxTasks, final double threshold) {
+		assert model == RuleProbType.ADAPTIVE || model == RuleProbType.SEMI_ADAPTIVE || model == RuleProbType.ADAPTIVE_CLOSED_FORM;
+		RNAGrammar rnaGrammar = RNAGrammar.from(grammar, withNonCanonicalRules);
+		return Compressions.getBitsPerBaseBelow(dataset, rnaGrammar, model, null, maxTasks, threshold);
+	}
+
 	public static class GrammarWithScore implements Comparable<RandomGrammarExplorer.GrammarWithScore> {
 		public final SecondaryStructureGrammar grammar;
 		public final double avgBitsPerBase;
@@ -11,7 +11,7 @@ import compression.grammar.*;
 import compression.parser.CYKParser;
 import compression.parser.GrammarReaderNWriter;
 import compression.parser.SRFParser;
-import compression.samplegrammars.model.AdaptiveRuleProbModel;
+import compression.samplegrammars.model.FenwickAdaptiveRuleProbModel;
 import compression.samplegrammars.model.RuleProbModel;
 
 import java.io.*;
@@ -260,7 +260,7 @@ public class ExhaustiveGrammarGenerator {
             for (RNAWithStructure RNAWS : dataset) {
                 ///////////*************compression using adaptive model
                 ArithmeticEncoder AE2 = new BitSizeOnlyArithmeticEncoder();
-                RuleProbModel RPMAdaptive = new AdaptiveRuleProbModel(g);
+                RuleProbModel RPMAdaptive = new FenwickAdaptiveRuleProbModel(g);
                 // GenericRNAEncoder GRAdaptive = new GenericRNAEncoder(RPMAdaptive, AE2, G.getGrammar(), G.getStartSymbol());
                 GenericRNAEncoderForPrecision GRAdaptive = new GenericRNAEncoderForPrecision(RPMAdaptive, AE2, g, g.startSymbol);
                 //String encodedStringAdaptive = GRAdaptive.encodeRNA(RNAWS);
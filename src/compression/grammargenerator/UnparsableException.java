@@ -4,22 +4,41 @@ package compression.grammargenerator;
  * @author Sebastian Wild (wild@liverpool.ac.uk)
  */
 public class UnparsableException extends Exception {
+	/** position of the unparsable word in a batch of words, or -1 if unknown */
+	private final int wordIndex;
+
 	public UnparsableException() {
+		this.wordIndex = -1;
 	}
 
 	public UnparsableException(final String message) {
 		super(message);
+		this.wordIndex = -1;
 	}
 
 	public UnparsableException(final String message, final Throwable cause) {
 		super(message, cause);
+		this.wordIndex = -1;
+	}
+
+	/** @param wordIndex position of the unparsable word in a batch of words */
+	public UnparsableException(final String message, final Throwable cause, final int wordIndex) {
+		super(message, cause);
+		this.wordIndex = wordIndex;
 	}
 
 	public UnparsableException(final Throwable cause) {
 		super(cause);
+		this.wordIndex = -1;
 	}
 
 	public UnparsableException(final String message, final Throwable cause, final boolean enableSuppression, final boolean writableStackTrace) {
 		super(message, cause, enableSuppression, writableStackTrace);
+		this.wordIndex = -1;
+	}
+
+	/** @return the position of the unparsable word in a batch of words, or -1 if unknown */
+	public int getWordIndex() {
+		return wordIndex;
 	}
 }
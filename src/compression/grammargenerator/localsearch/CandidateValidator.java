@@ -0,0 +1,38 @@
+package compression.grammargenerator.localsearch;
+
+import compression.grammar.SecondaryStructureGrammar;
+import compression.parser.IncrementalRecognizer;
+import compression.parser.SRFParser;
+import lombok.RequiredArgsConstructor;
+
+import java.util.BitSet;
+
+/**
+ * Parsability check of the neighbors of the current grammar against the validation words:
+ * a {@link DatasetFilter} and, if the rule universe allows it, an {@link IncrementalRecognizer}
+ * that keeps the charts of the current grammar.
+ *
+ * <p>This class is not thread-safe; a step evaluated in parallel uses one validator per worker.
+ */
+@RequiredArgsConstructor
+final class CandidateValidator {
+	private final DatasetFilter datasetFilter;
+	/** recognizer of the words of datasetFilter, or {@code null} to parse every candidate from scratch */
+	private final IncrementalRecognizer<Character> recognizer;
+
+	/** Makes mask the current grammar, whose neighbors are checked next; cheap if it already is. */
+	void setCurrent(final BitSet mask) {
+		if (recognizer != null) recognizer.setRules(mask);
+	}
+
+	/** @return whether the candidate parses all words; incremental from the current grammar if possible */
+	boolean passes(final SecondaryStructureGrammar candidateGrammar, final BitSet candidateMask) {
+		if (recognizer == null) return datasetFilter.passes(new SRFParser<>(candidateGrammar));
+		recognizer.setCandidate(candidateMask);
+		return datasetFilter.passes(recognizer::candidateParses);
+	}
+
+	DatasetFilter datasetFilter() {
+		return datasetFilter;
+	}
+}
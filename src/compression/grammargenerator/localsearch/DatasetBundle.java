@@ -1,29 +1,31 @@
 package compression.grammargenerator.localsearch;
 
 import compression.data.Dataset;
+import compression.grammar.EncodedWord;
 import compression.grammar.RNAWithStructure;
-import compression.grammar.Terminal;
 import com.google.common.collect.ImmutableList;
 import lombok.Value;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 
 /**
  * Holds prepared datasets and cached word lists for local search.
+ * The word lists are only used for parsability checks and sorted by length, shortest first.
  */
 @Value
 class DatasetBundle {
 	Dataset objectiveDatasetLimited;
-	List<List<Terminal<Character>>> parsableDatasetWords;
-	List<List<Terminal<Character>>> objectiveDatasetWords;
+	List<EncodedWord<Character>> parsableDatasetWords;
+	List<EncodedWord<Character>> objectiveDatasetWords;
 
 	static DatasetBundle from(final Dataset objectiveDataset, final Dataset parsableDataset, final int objectiveLimit) {
-		ImmutableList.Builder<List<Terminal<Character>>> parsableWordsBuilder = ImmutableList.builder();
+		ImmutableList.Builder<EncodedWord<Character>> parsableWordsBuilder = ImmutableList.builder();
 		for (RNAWithStructure rna : parsableDataset) {
-			parsableWordsBuilder.add(rna.secondaryStructureAsTerminals());
+			parsableWordsBuilder.add(rna.encodedSecondaryStructure());
 		}
 
 		List<RNAWithStructure> rnas = new ArrayList<>(objectiveDataset.getSize());
@@ -51,14 +53,18 @@ class DatasetBundle {
 			}
 		};
 
-		ImmutableList.Builder<List<Terminal<Character>>> objectiveWordsBuilder = ImmutableList.builder();
+		ImmutableList.Builder<EncodedWord<Character>> objectiveWordsBuilder = ImmutableList.builder();
 		for (RNAWithStructure rna : objectiveRnasLimited) {
-			objectiveWordsBuilder.add(rna.secondaryStructureAsTerminals());
+			objectiveWordsBuilder.add(rna.encodedSecondaryStructure());
 		}
 
 		return new DatasetBundle(
 				objectiveDatasetLimited,
-				parsableWordsBuilder.build(),
-				objectiveWordsBuilder.build());
+				byLength(parsableWordsBuilder.build()),
+				byLength(objectiveWordsBuilder.build()));
+	}
+
+	private static List<EncodedWord<Character>> byLength(final List<EncodedWord<Character>> words) {
+		return ImmutableList.sortedCopyOf(Comparator.comparingInt(EncodedWord::length), words);
 	}
 }
@@ -2,8 +2,9 @@ package compression.grammargenerator.localsearch;
 
 import compression.RuleProbType;
 import compression.data.Dataset;
+import compression.grammar.EncodedWord;
+import compression.grammar.RNAWithStructure;
 import compression.grammar.SecondaryStructureGrammar;
-import compression.grammar.Terminal;
 import compression.grammargenerator.AbstractGrammarExplorer;
 import compression.grammargenerator.RandomGrammarExplorer;
 import compression.grammargenerator.localsearch.dataclasses.Config;
@@ -12,11 +13,16 @@ import compression.grammargenerator.localsearch.dataclasses.RunResult;
 import compression.grammargenerator.localsearch.dataclasses.RunStats;
 import compression.grammargenerator.localsearch.dataclasses.SearchState;
 import compression.grammargenerator.localsearch.dataclasses.SearchStrategy;
+import compression.parser.IncrementalRecognizer;
 import compression.parser.SRFParser;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Simple hill-climbing local search over grammars:
@@ -28,8 +34,7 @@ public class LocalSearchExplorer extends AbstractGrammarExplorer {
 	private final Random random;
 	private final long seed;
 	private final Dataset objectiveDatasetLimited;
-	private final List<List<Terminal<Character>>> parsableDatasetWords;
-	private final List<List<Terminal<Character>>> objectiveDatasetWords;
+	private final DatasetFilter datasetFilter;
     private final boolean withNonCanonicalRules;
 	private final SearchStrategy searchStrategy;
 	private final RuleMaskCodec ruleMaskCodec;
@@ -42,22 +47,78 @@ public class LocalSearchExplorer extends AbstractGrammarExplorer {
 	                            final boolean withNonCanonicalRules,
 	                            final int objectiveLimit,
 	                            final SearchStrategy searchStrategy) {
+		this(nNonterminals, seed, objectiveDataset, parsableDataset, withNonCanonicalRules, objectiveLimit,
+				searchStrategy, new VerdictCache(Config.defaults().verdictCacheSize()), null, 0, 0);
+	}
+
+	/**
+	 * @param verdictCache verdicts of candidate grammars, shared with other runs on the same datasets
+	 * @param scheduler    pool and concurrency limits for steps and scoring, or {@code null} to
+	 *                     evaluate steps in order and score in the common pool
+	 * @param racingFirstStage number of RNAs of the first stage of racing neighbors against the current
+	 *                     grammar (see {@link RacingScoreEvaluator}), or {@code 0} to score them on all RNAs
+	 * @param racingConfidence confidence of abandoning a neighbor while racing
+	 */
+	LocalSearchExplorer(final int nNonterminals,
+	                            final long seed,
+	                            final Dataset objectiveDataset,
+	                            final Dataset parsableDataset,
+	                            final boolean withNonCanonicalRules,
+	                            final int objectiveLimit,
+	                            final SearchStrategy searchStrategy,
+	                            final VerdictCache verdictCache,
+	                            final LocalSearchScheduler scheduler,
+	                            final int racingFirstStage,
+	                            final double racingConfidence) {
 		super(nNonterminals);
 		this.random = new Random(seed);
 		this.seed = seed;
 		this.withNonCanonicalRules = withNonCanonicalRules;
 		this.searchStrategy = searchStrategy;
 		DatasetBundle bundle = DatasetBundle.from(objectiveDataset, parsableDataset, objectiveLimit);
-		this.parsableDatasetWords = bundle.getParsableDatasetWords();
-		this.objectiveDatasetWords = bundle.getObjectiveDatasetWords();
+		List<EncodedWord<Character>> validationWords = new ArrayList<>(bundle.getParsableDatasetWords());
+		validationWords.addAll(bundle.getObjectiveDatasetWords());
+		this.datasetFilter = new DatasetFilter(validationWords);
+		List<CandidateValidator> validators = new ArrayList<>();
+		ForkJoinPool stepPool = scheduler == null ? null : scheduler.stepPool();
+		for (int worker = 0; worker < (stepPool == null ? 1 : scheduler.stepParallelism()); worker++) {
+			DatasetFilter filter = worker == 0 ? datasetFilter : new DatasetFilter(validationWords);
+			IncrementalRecognizer<Character> recognizer = nNonterminals <= SRFParser.MAX_RECOGNITION_NONTERMINALS
+					? new IncrementalRecognizer<>(allPossibleRules, nonTerminals[nNonterminals - 1], filter.words())
+					: null;
+			validators.add(new CandidateValidator(filter, recognizer));
+		}
 		this.objectiveDatasetLimited = bundle.getObjectiveDatasetLimited();
 		this.ruleMaskCodec = new RuleMaskCodec(allPossibleRules, nonTerminals[nNonterminals - 1]);
-		ScoreEvaluator scoreEvaluator = grammar ->
-				getBitsPerBase(objectiveDatasetLimited, RuleProbType.ADAPTIVE, grammar, withNonCanonicalRules);
+		int scoringTasks = scheduler == null ? ForkJoinPool.getCommonPoolParallelism() : scheduler.scoringParallelism();
+		ScoreEvaluator scoreEvaluator;
+		if (racingFirstStage > 0) {
+			List<RNAWithStructure> sample = new ArrayList<>(objectiveDatasetLimited.getSize());
+			objectiveDatasetLimited.forEach(sample::add);
+			// its own generator, so that racing does not change the moves drawn from random
+			Collections.shuffle(sample, new Random(seed));
+			scoreEvaluator = new RacingScoreEvaluator(sample, withNonCanonicalRules, scoringTasks,
+					racingFirstStage, racingConfidence);
+		} else {
+			scoreEvaluator = new ScoreEvaluator() {
+				@Override
+				public double score(final SecondaryStructureGrammar grammar) {
+					return getBitsPerBase(objectiveDatasetLimited, RuleProbType.ADAPTIVE, grammar, withNonCanonicalRules, scoringTasks);
+				}
+
+				@Override
+				public double score(final SecondaryStructureGrammar grammar, final SearchState incumbent) {
+					if (incumbent == null) return score(grammar);
+					return getBitsPerBaseBelow(objectiveDatasetLimited, RuleProbType.ADAPTIVE, grammar, withNonCanonicalRules,
+							scoringTasks, incumbent.getBitsPerBase());
+				}
+			};
+		}
 		this.neighborSearcher = new NeighborSearcher(
 				ruleMaskCodec,
-				parsableDatasetWords,
-				objectiveDatasetWords,
+				validators,
+				stepPool,
+				verdictCache,
 				scoreEvaluator,
 				random);
 	}
@@ -85,6 +146,7 @@ public class LocalSearchExplorer extends AbstractGrammarExplorer {
 	                               final int runNumber) {
 		SearchState current = sampleParsableSeed(initialRuleCount, maxSeedAttempts);
 		Logging.printSeed(runNumber, current.getGrammar().size(), current.getBitsPerBase());
+		neighborSearcher.takeStepStats();
 
         Random rng = new Random(1234);
 
@@ -95,6 +157,8 @@ public class LocalSearchExplorer extends AbstractGrammarExplorer {
             rng.nextDouble();
 			NeighborSearchOutcome outcome = neighborSearcher.search(current, maxSwapCandidatesPerStep, maxNeighborEvaluationsPerStep, maxCandidatesPerStep, searchStrategy, rng);
 			totalNeighborsEvaluated += outcome.getEvaluated();
+			long[] parseStats = neighborSearcher.takeStepStats();
+			Logging.printStepValidation(runNumber, step, parseStats[0], parseStats[1]);
 
             if (Config.defaults().searchStrategy == SearchStrategy.FIRST_IMPROVEMENT || Config.defaults().searchStrategy == SearchStrategy.BEST_IMPROVEMENT || Config.defaults().searchStrategy == SearchStrategy.STOCHASTIC_IMPROVEMENT) {
                 if (!outcome.isImproved()) {
@@ -155,9 +219,8 @@ public class LocalSearchExplorer extends AbstractGrammarExplorer {
 		for (int attempt = 1; attempt <= maxAttempts; attempt++) {
 			SecondaryStructureGrammar grammar = generator.randomGrammar(random, nRules);
 			SRFParser<Character> parser = new SRFParser<>(grammar);
-		if (!Utils.passesDataset(parser, parsableDatasetWords)) continue;
-		if (!Utils.passesDataset(parser, objectiveDatasetWords)) continue;
-			boolean[] mask = ruleMaskCodec.toMask(grammar);
+			if (!datasetFilter.passes(parser)) continue;
+			BitSet mask = RuleMaskCodec.pack(ruleMaskCodec.toMask(grammar));
 			double score = getBitsPerBase(objectiveDatasetLimited, RuleProbType.ADAPTIVE, grammar, withNonCanonicalRules);
 			if (!Double.isFinite(score)) continue;
 			Logging.printSeedCandidate(attempt, grammar.size(), score);
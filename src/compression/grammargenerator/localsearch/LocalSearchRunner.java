@@ -11,8 +11,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 /**
@@ -33,9 +31,11 @@ final class LocalSearchRunner {
 		CsvProgressWriter csvWriter = CsvProgressWriter.create();
 		Logging.setCsvWriter(csvWriter);
 
-		try {
-			ExecutorService executor = Executors.newFixedThreadPool(config.poolSize());
-			List<Future<RunResult>> futures = new ArrayList<>();
+		try (LocalSearchScheduler scheduler = new LocalSearchScheduler(config)) {
+			Logging.printScheduler(scheduler.threads(), scheduler.maxConcurrentRuns(),
+					scheduler.stepParallelism(), scheduler.scoringParallelism());
+			VerdictCache verdictCache = new VerdictCache(config.verdictCacheSize());
+			List<Callable<RunResult>> runs = new ArrayList<>();
 
 			for (int r = 0; r < config.numRuns(); r++) {
 				final int runNumber = r + 1;
@@ -49,7 +49,11 @@ final class LocalSearchRunner {
 							parsableDataset,
 							config.withNonCanonicalRules(),
 							config.objectiveLimit(),
-							config.searchStrategy());
+							config.searchStrategy(),
+							verdictCache,
+							scheduler,
+							config.racingFirstStage(),
+							config.racingConfidence());
 					return explorer.runSingleRun(
 							config.initialRuleCount(),
 							config.maxSeedAttempts(),
@@ -59,8 +63,9 @@ final class LocalSearchRunner {
 							config.maxCandidatesPerStep(),
 							runNumber);
 				};
-				futures.add(executor.submit(task));
+				runs.add(task);
 			}
+			List<Future<RunResult>> futures = scheduler.submitAll(runs);
 
 			List<RunResult> runResults = new ArrayList<>();
 			for (int i = 0; i < futures.size(); i++) {
@@ -73,7 +78,7 @@ final class LocalSearchRunner {
 					Logging.printRunFailure(i + 1, e.getCause());
 				}
 			}
-			executor.shutdown();
+			Logging.printVerdictCacheStats(verdictCache.stats(), verdictCache.size());
 
 			RunResult best = LocalSearchExplorer.bestResult(runResults);
 
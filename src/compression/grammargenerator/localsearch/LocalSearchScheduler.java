@@ -0,0 +1,96 @@
+package compression.grammargenerator.localsearch;
+
+import compression.grammargenerator.localsearch.dataclasses.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The one work-stealing pool that executes all work of a local search: the runs, the neighbor
+ * evaluations of a step (see {@link NeighborSearcher}) and the per-RNA scoring of a grammar
+ * (see {@link compression.Compressions#getEncodedLengths}) are all tasks of this pool, so idle
+ * threads steal whatever work is left on any level instead of the levels competing for
+ * separate pools.
+ *
+ * <p>The pool has {@link Config#threads()} threads, by default one per available processor.
+ * The concurrency of each level is limited separately:
+ *
+ * <ul>
+ *   <li>at most {@link Config#maxConcurrentRuns()} runs execute at once</li>
+ *   <li>a step is evaluated by {@link Config#stepParallelism()} workers</li>
+ *   <li>scoring a grammar splits the RNAs into at most {@link Config#scoringParallelism()} tasks</li>
+ * </ul>
+ *
+ * A limit of {@code 0} means one per thread of the pool.
+ */
+final class LocalSearchScheduler implements AutoCloseable {
+	private final ForkJoinPool pool;
+	private final int maxConcurrentRuns, stepParallelism, scoringParallelism;
+
+	LocalSearchScheduler(final Config config) {
+		int threads = config.threads() > 0 ? config.threads() : Runtime.getRuntime().availableProcessors();
+		this.pool = new ForkJoinPool(threads);
+		this.maxConcurrentRuns = orThreads(config.maxConcurrentRuns());
+		this.stepParallelism = orThreads(config.stepParallelism());
+		this.scoringParallelism = orThreads(config.scoringParallelism());
+	}
+
+	private int orThreads(final int limit) {
+		return limit > 0 ? limit : pool.getParallelism();
+	}
+
+	/**
+	 * Executes runs in the pool, at most {@link #maxConcurrentRuns()} at once, in the given order:
+	 * each of that many drivers takes the next run not yet started when its current run is done.
+	 *
+	 * @return the futures of the results of runs, in the same order
+	 */
+	<T> List<Future<T>> submitAll(final List<? extends Callable<T>> runs) {
+		final List<CompletableFuture<T>> results = new ArrayList<>(runs.size());
+		for (int i = 0; i < runs.size(); i++) results.add(new CompletableFuture<>());
+		final AtomicInteger next = new AtomicInteger();
+		for (int driver = 0; driver < Math.min(maxConcurrentRuns, runs.size()); driver++) {
+			pool.execute(() -> {
+				for (int i; (i = next.getAndIncrement()) < runs.size(); ) {
+					try {
+						results.get(i).complete(runs.get(i).call());
+					} catch (Throwable e) {
+						results.get(i).completeExceptionally(e);
+					}
+				}
+			});
+		}
+		return List.copyOf(results);
+	}
+
+	/** @return the pool for evaluating the neighbors of a step in parallel, or {@code null} if steps are evaluated in order */
+	ForkJoinPool stepPool() {
+		return stepParallelism > 1 ? pool : null;
+	}
+
+	int maxConcurrentRuns() {
+		return maxConcurrentRuns;
+	}
+
+	int stepParallelism() {
+		return stepParallelism;
+	}
+
+	int scoringParallelism() {
+		return scoringParallelism;
+	}
+
+	int threads() {
+		return pool.getParallelism();
+	}
+
+	@Override
+	public void close() {
+		pool.shutdown();
+	}
+}
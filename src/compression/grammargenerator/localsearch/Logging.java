@@ -1,5 +1,6 @@
 package compression.grammargenerator.localsearch;
 
+import com.google.common.cache.CacheStats;
 import compression.data.Dataset;
 import compression.grammargenerator.localsearch.dataclasses.Config;
 import compression.grammargenerator.localsearch.dataclasses.RunResult;
@@ -54,6 +55,11 @@ public final class Logging {
 		}
 	}
 
+	public static void printStepValidation(int runNumber, int step, long parses, long parsesSaved) {
+		log.info("{} step {}: validation parsed {} words, saved {} parses compared with file order",
+				runLabel(runNumber), step, parses, parsesSaved);
+	}
+
 	public static void printStepImprovement(int runNumber,
 	                                        int step,
 	                                        int previousSize,
@@ -115,6 +121,19 @@ public final class Logging {
 		}
 	}
 
+	public static void printScheduler(int threads, int maxConcurrentRuns, int stepParallelism, int scoringParallelism) {
+		log.info("scheduler: {} threads, at most {} runs at once, {} workers per step, {} tasks per scoring",
+				threads, maxConcurrentRuns, stepParallelism, scoringParallelism);
+	}
+
+	public static void printVerdictCacheStats(CacheStats stats, long size) {
+		log.info("verdict cache: {} lookups, hit rate {}%, {} masks cached, {} evicted",
+				stats.requestCount(),
+				String.format("%.1f", 100 * stats.hitRate()),
+				size,
+				stats.evictionCount());
+	}
+
 	public static void printRunSummaryHeader() {
 		log.info("=== Run summary ===");
 	}
@@ -156,7 +175,13 @@ public final class Logging {
 		log.info("maxCandidatesPerStep = {}", config.maxCandidatesPerStep());
 		log.info("maxSeedAttempts = {}", config.maxSeedAttempts());
 		log.info("numRuns = {}", config.numRuns());
-		log.info("poolSize = {}", config.poolSize());
+		log.info("threads = {}", config.threads());
+		log.info("maxConcurrentRuns = {}", config.maxConcurrentRuns());
+		log.info("stepParallelism = {}", config.stepParallelism());
+		log.info("scoringParallelism = {}", config.scoringParallelism());
+		log.info("verdictCacheSize = {}", config.verdictCacheSize());
+		log.info("racingFirstStage = {}", config.racingFirstStage());
+		log.info("racingConfidence = {}", config.racingConfidence());
 		log.info("searchStrategy = {}", config.searchStrategy());
 	}
 
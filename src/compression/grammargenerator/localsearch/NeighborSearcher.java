@@ -1,20 +1,22 @@
 package compression.grammargenerator.localsearch;
 
 import compression.grammar.SecondaryStructureGrammar;
-import compression.grammar.Terminal;
 import compression.grammargenerator.localsearch.dataclasses.NeighborSearchOutcome;
 import compression.grammargenerator.localsearch.dataclasses.SearchState;
 import compression.grammargenerator.localsearch.dataclasses.SearchStrategy;
 import compression.grammargenerator.localsearch.dataclasses.SearchStrategy.ImprovementTracker;
-import compression.parser.SRFParser;
+import compression.parser.IncrementalRecognizer;
 import lombok.RequiredArgsConstructor;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Generates and evaluates one-step neighbors for a {@link SearchState}.
@@ -27,21 +29,45 @@ import java.util.Set;
  *
  * <ol>
  *   <li>apply the move to the rule mask</li>
+ *   <li>look up the verdict of the mask in the {@link VerdictCache}; on a hit, skip the next
+ *   three steps</li>
  *   <li>rebuild the grammar and reject invalid masks</li>
- *   <li>reject grammars that fail the parsable dataset</li>
- *   <li>reject grammars that fail the objective dataset</li>
+ *   <li>reject grammars that fail the parsable or the objective dataset (see {@link DatasetFilter}),
+ *   recognizing the words incrementally from the charts of the current grammar
+ *   (see {@link IncrementalRecognizer}); adding a rule to the current grammar, which parses all
+ *   words, cannot lose a parse, so ADD moves skip this check, and removals only re-check the
+ *   words whose derivations use a removed rule</li>
  *   <li>score the remaining grammar and pass it to the configured {@link SearchStrategy}</li>
  * </ol>
  *
+ * <p>Strategies that never move to a worse grammar only need the scores of improving neighbors, so
+ * for them, a neighbor is raced against the current grammar and may be abandoned once it cannot
+ * beat it (see {@link RacingScoreEvaluator}); abandoned neighbors count
+ * as evaluated but are not passed to the strategy.
+ *
  * <p>{@code maxCandidatesPerStep} limits how many moves are considered from the reordered move
  * list. {@code maxNeighborEvaluationsPerStep} separately limits how many valid candidates are
  * actually scored, so the two counters can diverge.
+ *
+ * <p>With a pool, the verdicts of the moves are computed in parallel in batches of
+ * {@link #BATCH_PER_WORKER} moves per worker, each worker with its own {@link CandidateValidator}.
+ * The verdicts are still passed to the strategy in the order of the move list, so a step takes
+ * the same decisions as without a pool. If the strategy stops at the first improvement, moves
+ * after the first improving move found are not started, and moves after it that are already
+ * running are abandoned before their parsability check and before scoring; their verdicts are
+ * not cached.
  */
 @RequiredArgsConstructor
 final class NeighborSearcher {
+	/** number of moves per worker evaluated in parallel before the strategy sees their verdicts */
+	static final int BATCH_PER_WORKER = 4;
+
 	private final RuleMaskCodec ruleMaskCodec;
-	private final List<List<Terminal<Character>>> parsableDatasetWords;
-	private final List<List<Terminal<Character>>> objectiveDatasetWords;
+	/** one validator per worker; the first one is used without a pool */
+	private final List<CandidateValidator> validators;
+	/** pool for evaluating the moves of a step in parallel, or {@code null} to evaluate them in order */
+	private final ForkJoinPool pool;
+	private final VerdictCache verdictCache;
 	private final ScoreEvaluator scoreEvaluator;
 	private final Random random;
 
@@ -56,29 +82,47 @@ final class NeighborSearcher {
 	                             final SearchStrategy strategy,
 	                             final Random rng) {
 		List<Move> moves = enumerateMoves(current.getRuleMask(), maxSwapCandidates);
+		// each move is applied to and undone on this copy; only accepted states get their own mask
+		final BitSet candidateMask = (BitSet) current.getRuleMask().clone();
 		//Collections.shuffle(moves, random);
         moves = rebalancedShuffle(moves);
 		int evaluated = 0;
 		int neighborIndex = 0;
 		int considered = 0;
 		ImprovementTracker tracker = strategy.newTracker();
-		for (Move move : moves) {
-			if (maxCandidatesPerStep >= 0 && considered >= maxCandidatesPerStep) break;
+		final int nMoves = maxCandidatesPerStep >= 0 ? Math.min(moves.size(), maxCandidatesPerStep) : moves.size();
+		final VerdictCache.Verdict[] verdicts = new VerdictCache.Verdict[nMoves];
+		// the grammars scored in this step, passed on to newState instead of being built again
+		final SecondaryStructureGrammar[] grammars = new SecondaryStructureGrammar[nMoves];
+		int batchEnd = 0;
+		// strategies that accept worsening moves need the exact scores of all neighbors
+		final SearchState incumbent = tracker.acceptsWorsening() ? null : current;
+		final double bound = incumbent == null ? Double.POSITIVE_INFINITY : current.getBitsPerBase();
+		if (pool == null) validators.getFirst().setCurrent(current.getRuleMask());
+		for (int i = 0; i < nMoves; i++) {
+			final int index = i;
+			final Move move = moves.get(i);
 			if (evaluated >= maxNeighborEvaluations) break;
 			considered++;
-			boolean[] candidateMask = applyMove(current.getRuleMask(), move);
-
-			SecondaryStructureGrammar candidateGrammar = ruleMaskCodec.buildGrammarIfValid(candidateMask);
-			if (candidateGrammar == null) continue;
-			SRFParser<Character> parser = new SRFParser<>(candidateGrammar);
-			if (!Utils.passesDataset(parser, parsableDatasetWords)) continue;
-			if (!Utils.passesDataset(parser, objectiveDatasetWords)) continue;
-			double score = scoreEvaluator.score(candidateGrammar);
+			VerdictCache.Verdict verdict;
+			if (pool == null) {
+				applyMove(candidateMask, move);
+				verdict = verdictCache.get(candidateMask, bound, () -> evaluate(validators.getFirst(), candidateMask, move, incumbent, grammars, index, null));
+				undoMove(candidateMask, move);
+			} else {
+				if (i == batchEnd) {
+					batchEnd = Math.min(nMoves, i + BATCH_PER_WORKER * validators.size());
+					evaluateBatch(moves, i, batchEnd, verdicts, grammars, current, incumbent, tracker.stopsAtFirstImprovement());
+				}
+				verdict = verdicts[i];
+			}
+			if (!verdict.parsable()) continue;
+			double score = verdict.bitsPerBase();
 			evaluated++;
 			neighborIndex++;
             double currentScore = current.getBitsPerBase();
 			if (score < currentScore) {
-				SearchState candidateState = new SearchState(candidateMask, candidateGrammar, score);
+				SearchState candidateState = newState(current, move, grammars[i], score);
 				tracker.consider(candidateState, neighborIndex, currentScore);
 				if (tracker.shouldStop()) {
 					return new NeighborSearchOutcome(
@@ -92,7 +136,7 @@ final class NeighborSearcher {
 			}
             else{
                 if(tracker.acceptsWorsening()){
-                    SearchState candidateState = new SearchState(candidateMask, candidateGrammar, score);
+                    SearchState candidateState = newState(current, move, grammars[i], score);
                     tracker.consider(candidateState, neighborIndex, currentScore);
                     if (tracker.shouldStop()) { //shouldStop in this case not needed at the moment, but maybe in the future
                         return new NeighborSearchOutcome(
@@ -131,11 +175,106 @@ final class NeighborSearcher {
 		return new NeighborSearchOutcome(null, evaluated, -1, current.getGrammar().size(), current.getBitsPerBase(), false);
 	}
 
-	private List<Move> enumerateMoves(final boolean[] ruleMask, final int maxSwapCandidates) {
+	/**
+	 * Validates and scores a candidate that is not in the verdict cache, abandoning it once it cannot
+	 * beat incumbent unless incumbent is {@code null}, in which case a candidate that cannot be encoded
+	 * is rejected; the grammar of a scored candidate is stored in grammars[index].
+	 *
+	 * @param firstImprovement the index of the first improving move found so far, or {@code null}
+	 * @return the verdict, or {@code null} if an earlier move improved before this one was settled
+	 */
+	private VerdictCache.Verdict evaluate(final CandidateValidator validator, final BitSet candidateMask, final Move move,
+	                                      final SearchState incumbent, final SecondaryStructureGrammar[] grammars,
+	                                      final int index, final AtomicInteger firstImprovement) {
+		SecondaryStructureGrammar candidateGrammar = ruleMaskCodec.buildGrammarIfValid(candidateMask);
+		if (candidateGrammar == null) return VerdictCache.Verdict.REJECTED;
+		if (cancelled(firstImprovement, index)) return null;
+		// adding rules never loses a derivation, and the current grammar parses all words
+		if (move.type != Move.Type.ADD && !validator.passes(candidateGrammar, candidateMask)) {
+			return VerdictCache.Verdict.REJECTED;
+		}
+		if (cancelled(firstImprovement, index)) return null;
+		double score = scoreEvaluator.score(candidateGrammar, incumbent);
+		if (score == Double.POSITIVE_INFINITY) {
+			// without an incumbent nothing is abandoned: the grammar cannot encode the objective RNAs at all
+			if (incumbent == null) return VerdictCache.Verdict.REJECTED;
+			return VerdictCache.Verdict.abandoned(incumbent.getBitsPerBase());
+		}
+		grammars[index] = candidateGrammar;
+		return new VerdictCache.Verdict(true, score);
+	}
+
+	/** @return whether a move before index improved, so the verdict of index is not needed */
+	private static boolean cancelled(final AtomicInteger firstImprovement, final int index) {
+		return firstImprovement != null && firstImprovement.get() < index;
+	}
+
+	/**
+	 * Computes the verdicts of moves[from, to) of current into verdicts and their grammars into
+	 * grammars (see {@link #evaluate}), with one task per validator taking the next move not yet started.
+	 *
+	 * @param incumbent         the state to race the moves against, see {@link #evaluate}
+	 * @param stopAtImprovement whether to not start, or to abandon, moves after an improving move;
+	 *                          their verdicts stay {@code null}
+	 */
+	private void evaluateBatch(final List<Move> moves, final int from, final int to,
+	                           final VerdictCache.Verdict[] verdicts, final SecondaryStructureGrammar[] grammars,
+	                           final SearchState current,
+	                           final SearchState incumbent, final boolean stopAtImprovement) {
+		final double bound = incumbent == null ? Double.POSITIVE_INFINITY : incumbent.getBitsPerBase();
+		final AtomicInteger next = new AtomicInteger(from);
+		final AtomicInteger firstImprovement = new AtomicInteger(to);
+		final List<ForkJoinTask<?>> tasks = new ArrayList<>(validators.size());
+		for (CandidateValidator validator : validators) {
+			tasks.add(pool.submit(() -> {
+				validator.setCurrent(current.getRuleMask());
+				final BitSet mask = (BitSet) current.getRuleMask().clone();
+				int i;
+				// moves are started in order, so once one is after an improvement, all later ones are
+				while ((i = next.getAndIncrement()) < to && i < firstImprovement.get()) {
+					final int index = i;
+					final Move move = moves.get(i);
+					applyMove(mask, move);
+					verdicts[i] = verdictCache.get(mask, bound, () -> evaluate(validator, mask, move, incumbent, grammars, index, firstImprovement));
+					undoMove(mask, move);
+					if (stopAtImprovement && verdicts[i] != null && verdicts[i].parsable() && verdicts[i].bitsPerBase() < current.getBitsPerBase()) {
+						firstImprovement.accumulateAndGet(i, Math::min);
+					}
+				}
+			}));
+		}
+		for (ForkJoinTask<?> task : tasks) task.join();
+	}
+
+	/** @return the number of parses run and saved by all validators since the last call, as {@code {run, saved}} */
+	long[] takeStepStats() {
+		long[] res = new long[2];
+		for (CandidateValidator validator : validators) {
+			long[] stats = validator.datasetFilter().takeStepStats();
+			res[0] += stats[0];
+			res[1] += stats[1];
+		}
+		return res;
+	}
+
+	/**
+	 * @return the state of current with move applied; its grammar is the one scored in this step,
+	 * or built again if the verdict came from the cache, and is named only here, for the candidates
+	 * that the strategy considers
+	 */
+	private SearchState newState(final SearchState current, final Move move, SecondaryStructureGrammar grammar,
+	                             final double score) {
+		BitSet mask = (BitSet) current.getRuleMask().clone();
+		applyMove(mask, move);
+		if (grammar == null) grammar = ruleMaskCodec.buildGrammarIfValid(mask);
+		return new SearchState(mask, RuleMaskCodec.named(grammar, mask), score);
+	}
+
+	private List<Move> enumerateMoves(final BitSet ruleMask, final int maxSwapCandidates) {
 		List<Integer> present = new ArrayList<>();
 		List<Integer> absent = new ArrayList<>();
-		for (int i = 0; i < ruleMask.length; i++) {
-			if (ruleMask[i]) present.add(i);
+		for (int i = 0; i < ruleMaskCodec.size(); i++) {
+			if (ruleMask.get(i)) present.add(i);
 			else absent.add(i);
 		}
 
@@ -165,21 +304,34 @@ final class NeighborSearcher {
 		return moves;
 	}
 
-	private boolean[] applyMove(final boolean[] ruleMask, final Move move) {
-		boolean[] next = Arrays.copyOf(ruleMask, ruleMask.length);
+	private static void applyMove(final BitSet ruleMask, final Move move) {
+		switch (move.type) {
+			case ADD:
+				ruleMask.set(move.target);
+				break;
+			case REMOVE:
+				ruleMask.clear(move.target);
+				break;
+			case SWAP:
+				ruleMask.clear(move.source);
+				ruleMask.set(move.target);
+				break;
+		}
+	}
+
+	private static void undoMove(final BitSet ruleMask, final Move move) {
 		switch (move.type) {
 			case ADD:
-				next[move.target] = true;
+				ruleMask.clear(move.target);
 				break;
 			case REMOVE:
-				next[move.target] = false;
+				ruleMask.set(move.target);
 				break;
 			case SWAP:
-				next[move.source] = false;
-				next[move.target] = true;
+				ruleMask.clear(move.target);
+				ruleMask.set(move.source);
 				break;
 		}
-		return next;
 	}
 
 	private record Move(Type type, int source, int target) {
@@ -0,0 +1,137 @@
+package compression.grammargenerator.localsearch;
+
+import compression.Compressions;
+import compression.RuleProbType;
+import compression.data.Dataset;
+import compression.grammar.RNAGrammar;
+import compression.grammar.RNAWithStructure;
+import compression.grammar.SecondaryStructureGrammar;
+import compression.grammargenerator.AbstractGrammarExplorer;
+import compression.grammargenerator.localsearch.dataclasses.SearchState;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scores grammars with the adaptive model on the objective dataset by racing them against an
+ * incumbent grammar, usually the current grammar of a local search step.
+ *
+ * <p>A grammar is encoded on a growing sample of the RNAs: the first stage has {@code firstStage}
+ * RNAs and each further stage doubles the sample, as in successive halving. After each stage, the
+ * grammar is abandoned if the sample shows, with the given confidence, that its bits per base on
+ * all RNAs are not below those of the incumbent. The test is paired: neighbors differ from the
+ * incumbent in one rule, so the per-RNA differences d of their bits per base vary far less than the
+ * bits per base themselves. With m of n RNAs encoded, the grammar is abandoned if
+ * {@code mean(d) - confidence * sd(d) / sqrt(m) * sqrt((n - m) / (n - 1)) >= 0}.
+ *
+ * <p>A grammar that is not abandoned is encoded on all RNAs and gets the same score as
+ * {@link AbstractGrammarExplorer#getBitsPerBase}. The per-RNA bits per base of the last incumbent
+ * are kept, so racing costs one full encoding per incumbent. Racing is a heuristic: a grammar whose
+ * score is just below that of the incumbent may be abandoned, the less likely the higher the confidence.
+ */
+final class RacingScoreEvaluator implements ScoreEvaluator {
+	private final List<RNAWithStructure> rnas;
+	private final boolean withNonCanonicalRules;
+	private final int maxTasks;
+	private final int firstStage;
+	private final double confidence;
+	/** rule mask and per-RNA bits per base of the last incumbent */
+	private BitSet incumbentMask;
+	private double[] incumbentBitsPerBase;
+
+	/**
+	 * @param rnas       the RNAs of the objective dataset, in the order they are added to the sample
+	 * @param maxTasks   maximum number of tasks the RNAs of one stage are encoded in,
+	 *                   see {@link Compressions#getEncodedLengths}
+	 * @param firstStage number of RNAs in the first stage, at least 2
+	 * @param confidence number of standard errors the mean difference to the incumbent must be above 0
+	 */
+	RacingScoreEvaluator(final List<RNAWithStructure> rnas, final boolean withNonCanonicalRules,
+	                     final int maxTasks, final int firstStage, final double confidence) {
+		if (firstStage < 2) throw new IllegalArgumentException("firstStage must be at least 2: " + firstStage);
+		this.rnas = List.copyOf(rnas);
+		this.withNonCanonicalRules = withNonCanonicalRules;
+		this.maxTasks = maxTasks;
+		this.firstStage = firstStage;
+		this.confidence = confidence;
+	}
+
+	@Override
+	public double score(final SecondaryStructureGrammar grammar) {
+		return score(grammar, null);
+	}
+
+	/**
+	 * @param incumbent the state to race against, or {@code null} to score grammar on all RNAs
+	 * @return the bits per base of grammar, or {@link Double#POSITIVE_INFINITY} if it was abandoned
+	 */
+	@Override
+	public double score(final SecondaryStructureGrammar grammar, final SearchState incumbent) {
+		final double[] reference = incumbent == null ? null : incumbentBitsPerBase(incumbent);
+		RNAGrammar rnaGrammar = RNAGrammar.from(grammar, withNonCanonicalRules);
+		final int n = rnas.size();
+		Map<RNAWithStructure, Integer> encodedLengths = new HashMap<>(n * 3 / 2);
+		double sum = 0, sumOfSquares = 0;
+		for (int from = 0, to = Math.min(n, firstStage); from < n; from = to, to = Math.min(n, 2 * to)) {
+			Map<RNAWithStructure, Integer> stage = encode(rnaGrammar, from, to);
+			encodedLengths.putAll(stage);
+			if (reference == null) continue;
+			for (int i = from; i < to; i++) {
+				RNAWithStructure rna = rnas.get(i);
+				double difference = ((double) stage.get(rna)) / rna.getNumberOfBases() - reference[i];
+				sum += difference;
+				sumOfSquares += difference * difference;
+			}
+			if (to < n && notBelowZero(sum, sumOfSquares, to, n)) return Double.POSITIVE_INFINITY;
+		}
+		return Compressions.getBitsPerBase(encodedLengths);
+	}
+
+	/** @return the bits per base of each RNA for the grammar of incumbent, encoding them if incumbent is new */
+	private synchronized double[] incumbentBitsPerBase(final SearchState incumbent) {
+		if (!incumbent.getRuleMask().equals(incumbentMask)) {
+			Map<RNAWithStructure, Integer> encodedLengths =
+					encode(RNAGrammar.from(incumbent.getGrammar(), withNonCanonicalRules), 0, rnas.size());
+			double[] bitsPerBase = new double[rnas.size()];
+			for (int i = 0; i < bitsPerBase.length; i++) {
+				bitsPerBase[i] = ((double) encodedLengths.get(rnas.get(i))) / rnas.get(i).getNumberOfBases();
+			}
+			incumbentMask = incumbent.getRuleMask();
+			incumbentBitsPerBase = bitsPerBase;
+		}
+		return incumbentBitsPerBase;
+	}
+
+	private Map<RNAWithStructure, Integer> encode(final RNAGrammar rnaGrammar, final int from, final int to) {
+		return Compressions.getEncodedLengths(
+				new Sample(rnas.subList(from, to)), rnaGrammar, RuleProbType.ADAPTIVE, null, maxTasks);
+	}
+
+	/** @return whether the mean of n values is not below 0, judging from the first m */
+	private boolean notBelowZero(final double sum, final double sumOfSquares, final int m, final int n) {
+		double mean = sum / m;
+		double variance = Math.max(0, (sumOfSquares - sum * mean) / (m - 1));
+		double standardError = Math.sqrt(variance / m * (n - m) / (n - 1));
+		return mean - confidence * standardError >= 0;
+	}
+
+	private record Sample(List<RNAWithStructure> rnas) implements Dataset {
+		@Override
+		public int getSize() {
+			return rnas.size();
+		}
+
+		@Override
+		public String name() {
+			return "racing-sample";
+		}
+
+		@Override
+		public Iterator<RNAWithStructure> iterator() {
+			return rnas.iterator();
+		}
+	}
+}
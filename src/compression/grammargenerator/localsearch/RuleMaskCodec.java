@@ -5,7 +5,7 @@ import compression.grammar.Rule;
 import compression.grammar.SecondaryStructureGrammar;
 import compression.util.MyMultimap;
 
-import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
@@ -16,7 +16,8 @@ import java.util.Random;
  * <p>The mask is a {@code boolean[]} of length equal to the global rule universe
  * ({@code allPossibleRules}). Bit {@code i} is {@code true} iff {@code allPossibleRules[i]} is
  * present in the grammar. This representation is used throughout local search so that neighbor
- * moves can be expressed as single bit flips.
+ * moves can be expressed as single bit flips. The search itself keeps masks packed in a
+ * {@link BitSet} (see {@link #pack}), which is cheap to copy, hash, and compare.
  */
 final class RuleMaskCodec {
 	private final Rule[] allPossibleRules;
@@ -56,19 +57,43 @@ final class RuleMaskCodec {
         return mask;
     }
 
+	/** @return the number of rules in the universe, i.e., the length of the masks */
+	int size() {
+		return allPossibleRules.length;
+	}
+
+	/** @return mask packed into a bit set */
+	static BitSet pack(final boolean[] mask) {
+		BitSet packed = new BitSet(mask.length);
+		for (int i = 0; i < mask.length; i++) {
+			if (mask[i]) packed.set(i);
+		}
+		return packed;
+	}
+
 	SecondaryStructureGrammar buildGrammarIfValid(final boolean[] mask) {
+		return buildGrammarIfValid(pack(mask));
+	}
+
+	/**
+	 * @return the unnamed grammar of the rules in mask, or {@code null} if it is not a valid grammar;
+	 * see {@link #named}
+	 */
+	SecondaryStructureGrammar buildGrammarIfValid(final BitSet mask) {
 		MyMultimap<NonTerminal, Rule> rules = new MyMultimap<>();
-		for (int i = 0; i < mask.length; i++) {
-			if (mask[i]) {
-				Rule rule = allPossibleRules[i];
-				rules.put(rule.left, rule);
-			}
+		for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+			Rule rule = allPossibleRules[i];
+			rules.put(rule.left, rule);
 		}
 		try {
-			String name = "LocalSearch_" + Arrays.toString(mask);
-			return new SecondaryStructureGrammar(name, startSymbol, rules);
+			return new SecondaryStructureGrammar(null, startSymbol, rules);
 		} catch (IllegalArgumentException e) {
 			return null; // invalid grammar
 		}
 	}
+
+	/** @return grammar, built from mask, named after the indices of its rules */
+	static SecondaryStructureGrammar named(final SecondaryStructureGrammar grammar, final BitSet mask) {
+		return grammar.withName("LocalSearch_" + mask);
+	}
 }
@@ -1,6 +1,7 @@
 package compression.grammargenerator.localsearch;
 
 import compression.grammar.SecondaryStructureGrammar;
+import compression.grammargenerator.localsearch.dataclasses.SearchState;
 
 /**
  * Computes a compression score for a grammar.
@@ -8,4 +9,14 @@ import compression.grammar.SecondaryStructureGrammar;
 @FunctionalInterface
 interface ScoreEvaluator {
 	double score(SecondaryStructureGrammar grammar);
+
+	/**
+	 * Like {@link #score(SecondaryStructureGrammar)}, but for callers that only need the score if it
+	 * is below the score of incumbent: may return {@link Double#POSITIVE_INFINITY} instead once the
+	 * grammar is found to not beat incumbent, see {@link RacingScoreEvaluator} and
+	 * {@link compression.Compressions#getBitsPerBaseBelow}.
+	 */
+	default double score(SecondaryStructureGrammar grammar, SearchState incumbent) {
+		return score(grammar);
+	}
 }
@@ -1,6 +1,6 @@
 package compression.grammargenerator.localsearch;
 
-import compression.grammar.Terminal;
+import compression.grammar.EncodedWord;
 import compression.parser.SRFParser;
 
 import java.util.List;
@@ -13,8 +13,12 @@ final class Utils {
 		// utility
 	}
 
-	static boolean passesDataset(final SRFParser<Character> parser, final List<List<Terminal<Character>>> words) {
-		for (List<Terminal<Character>> word : words) {
+	/**
+	 * Checks the words in the given order; see {@link DatasetFilter} for the check with learned
+	 * order used by the search.
+	 */
+	static boolean passesDataset(final SRFParser<Character> parser, final List<EncodedWord<Character>> words) {
+		for (EncodedWord<Character> word : words) {
 			if (!parser.parsable(word)) {
 				return false;
 			}
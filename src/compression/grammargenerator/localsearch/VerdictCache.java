@@ -0,0 +1,87 @@
+package compression.grammargenerator.localsearch;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import java.util.BitSet;
+import java.util.function.Supplier;
+
+/**
+ * Verdicts of candidate grammars, keyed by their (packed) rule mask.
+ *
+ * <p>Local search revisits the same grammars often: removing a rule and adding it back in a later
+ * step, swaps that undo earlier swaps, and the overlapping neighborhoods of different runs.
+ * One cache is shared by all runs of {@link LocalSearchRunner}, which use the same datasets and
+ * rule universe, so a mask is parsed and scored only once while it stays in the cache.
+ *
+ * <p>The cache holds at most {@code maxSize} masks and evicts the least recently used ones;
+ * {@code maxSize = 0} disables caching. It is thread-safe; two runs missing the same mask at the
+ * same time may both compute its (equal) verdict.
+ *
+ * <p>A grammar abandoned while racing (see {@link RacingScoreEvaluator}) has no exact score; its
+ * verdict only records the bound it did not beat and is computed again for a higher bound.
+ */
+final class VerdictCache {
+
+	/**
+	 * Verdict of a candidate rule mask: whether it is a valid grammar that parses the parsable and
+	 * the objective dataset, and if so, its bits per base on the objective dataset; if not exact, the
+	 * grammar was abandoned while scoring, and bitsPerBase is a bound its score is not below.
+	 */
+	record Verdict(boolean parsable, double bitsPerBase, boolean exact) {
+		static final Verdict REJECTED = new Verdict(false, Double.NaN);
+
+		Verdict(final boolean parsable, final double bitsPerBase) {
+			this(parsable, bitsPerBase, true);
+		}
+
+		/** @return the verdict of a parsable grammar whose score is not below bound */
+		static Verdict abandoned(final double bound) {
+			return new Verdict(true, bound, false);
+		}
+
+		/** @return whether this verdict tells if the score is below bound, and if so, the score */
+		boolean settles(final double bound) {
+			return exact || bound <= bitsPerBase;
+		}
+	}
+
+	private final Cache<BitSet, Verdict> cache;
+
+	VerdictCache(final long maxSize) {
+		this.cache = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().build();
+	}
+
+	/**
+	 * @return the verdict for mask, computing it with compute if it is not cached; mask may be
+	 * modified afterwards, the cache keeps a copy
+	 */
+	Verdict get(final BitSet mask, final Supplier<Verdict> compute) {
+		return get(mask, Double.POSITIVE_INFINITY, compute);
+	}
+
+	/**
+	 * Like {@link #get(BitSet, Supplier)}, but a cached verdict of an abandoned grammar is also
+	 * used if it settles whether the score is below bound. If compute returns {@code null}, i.e.,
+	 * gives up on mask, nothing is cached and {@code null} is returned.
+	 */
+	Verdict get(final BitSet mask, final double bound, final Supplier<Verdict> compute) {
+		Verdict verdict = cache.getIfPresent(mask);
+		if (verdict == null || !verdict.settles(bound)) {
+			verdict = compute.get();
+			if (verdict != null) cache.put((BitSet) mask.clone(), verdict);
+		}
+		return verdict;
+	}
+
+	/** @return hit and eviction counts since creation */
+	CacheStats stats() {
+		return cache.stats();
+	}
+
+	/** @return the number of cached masks */
+	long size() {
+		return cache.size();
+	}
+}
@@ -60,8 +60,33 @@ public class Config {
 	/** Dataset name that every seed and neighbor must parse. */
 	@Default String parsableDatasetName = "minimal-parsable";
 
-	/** Thread-pool size used for parallel multi-run execution. */
-	@Default int poolSize = 3;
+	/** Number of threads of the pool that executes all local-search work; {@code 0} uses one per available processor. */
+	@Default int threads = 0;
+
+	/** Maximum number of runs executing at once; {@code 0} allows one per thread. */
+	@Default int maxConcurrentRuns = 0;
+
+	/**
+	 * Number of workers evaluating the neighbors of one step in parallel; {@code 1} evaluates them
+	 * in order, {@code 0} uses one per thread. The search takes the same steps either way.
+	 */
+	@Default int stepParallelism = 1;
+
+	/** Maximum number of tasks scoring one grammar splits the RNAs into; {@code 0} allows one per thread. */
+	@Default int scoringParallelism = 0;
+
+	/** Maximum number of rule masks whose verdicts are cached across steps and runs; {@code 0} disables the cache. */
+	@Default int verdictCacheSize = 200_000;
+
+	/**
+	 * Number of objective RNAs a neighbor is scored on before it may be abandoned as not improving,
+	 * doubling with every further stage (at least {@code 2}); {@code 0} (the default) scores every
+	 * neighbor on all RNAs. Racing is a heuristic and has to be turned on explicitly.
+	 */
+	@Default int racingFirstStage = 0;
+
+	/** Number of standard errors by which the mean per-RNA difference of an abandoned neighbor to the current grammar must be above 0. */
+	@Default double racingConfidence = 3.0;
 
 	public static Config defaults() {
 		return Config.builder().build();
@@ -4,13 +4,28 @@ import compression.grammar.SecondaryStructureGrammar;
 import lombok.AllArgsConstructor;
 import lombok.Value;
 
+import java.util.BitSet;
+
 /**
  * Represents a candidate grammar and its bit score during search.
+ * The rule mask must not be modified once the state is created.
  */
 @Value
 @AllArgsConstructor
 public class SearchState {
-	boolean[] ruleMask;
+	BitSet ruleMask;
 	SecondaryStructureGrammar grammar;
 	double bitsPerBase;
+
+	public SearchState(final boolean[] ruleMask, final SecondaryStructureGrammar grammar, final double bitsPerBase) {
+		this(toBitSet(ruleMask), grammar, bitsPerBase);
+	}
+
+	private static BitSet toBitSet(final boolean[] mask) {
+		BitSet bits = new BitSet(mask.length);
+		for (int i = 0; i < mask.length; i++) {
+			if (mask[i]) bits.set(i);
+		}
+		return bits;
+	}
 }
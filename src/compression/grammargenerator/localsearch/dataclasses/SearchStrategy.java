@@ -83,6 +83,14 @@ public enum SearchStrategy {
 
         public abstract boolean shouldStop();
 
+        /**
+         * @return whether {@link #shouldStop()} becomes true as soon as a candidate better than the
+         * current grammar is considered, so candidates after it need not be evaluated
+         */
+        public boolean stopsAtFirstImprovement() {
+            return false;
+        }
+
         public abstract NeighborSearchOutcome getStochasticImprovement(Random random);
 
         public boolean hasImprovement() {
@@ -121,6 +129,11 @@ public enum SearchStrategy {
         public boolean shouldStop() {
             return hasImprovement();
         }
+
+        @Override
+        public boolean stopsAtFirstImprovement() {
+            return true;
+        }
     }
 
     private static final class BestImprovementTracker extends ImprovementTracker {
@@ -223,5 +236,10 @@ public enum SearchStrategy {
         public boolean shouldStop() {
             return hasImprovement();
         }
+
+        @Override
+        public boolean stopsAtFirstImprovement() {
+            return true;
+        }
     }
 }
\ No newline at end of file
@@ -34,6 +34,8 @@ public class CYKParser<T> implements StochasticParser<T> {
     public static final int INVALID_SPLIT = -1;
     private List<Rule> singleTerminalRules;
     private List<Rule> nonTerminalRules;
+    /** ln of the probabilities of {@link #singleTerminalRules} and {@link #nonTerminalRules}, looked up once by rule id */
+    private double[] singleTerminalLnProbs, nonTerminalLnProbs;
 
     public CYKParser(final Grammar<T> grammar) {
         this(grammar, null);
@@ -48,6 +50,16 @@ public class CYKParser<T> implements StochasticParser<T> {
                 return new BigDecimalInterval(0, 1);
             }
 
+            @Override
+            public Interval getIntervalFor(final int ruleId) {
+                return new BigDecimalInterval(0, 1);
+            }
+
+            @Override
+            public double lnProb(final int ruleId) {
+                return 0;
+            }
+
             @Override
             public List<Interval> getIntervalList(final NonTerminal lhs) {
                 throw new UnsupportedOperationException("Not implemented.");
@@ -80,12 +92,23 @@ public class CYKParser<T> implements StochasticParser<T> {
 
         }
 
+        singleTerminalLnProbs = lnProbsOf(singleTerminalRules);
+        nonTerminalLnProbs = lnProbsOf(nonTerminalRules);
+
         //TODO SPLIT RULES TO THOSE WITH SINGLE TERMINAL ON RHS
         //TODO SPLIT RULES TO THOSE WITH 2 NONTERMINALS ON RHS
         //TODO RAISE AN EXCEPTION FOR THOSE RULES WHICH DO NOT COMPLY
 
     }
 
+    private double[] lnProbsOf(final List<Rule> rules) {
+        double[] res = new double[rules.size()];
+        // every rule has probability 1, and DONT_CARE knows no rule ids
+        if (ruleProbModel == RuleProbModel.DONT_CARE) return res;
+        for (int i = 0; i < res.length; i++) res[i] = ruleProbModel.lnProb(grammar.getRuleId(rules.get(i)));
+        return res;
+    }
+
     @Override
     public Grammar<T> getGrammar() {
         return grammar;
@@ -224,13 +247,14 @@ public class CYKParser<T> implements StochasticParser<T> {
 
         //fills out the boolean array for substrings of length 1
         for (int s = 1; s < n + 1; s++) {
-            for (Rule rule : singleTerminalRules) {
+            for (int r = 0; r < singleTerminalRules.size(); r++) {
+                Rule rule = singleTerminalRules.get(r);
                 System.out.println(rule.getRight().length);
                 if ( rule.right[0].equals(word.get(s - 1))) {
                     int nt = integerNonTerminalMap.get(rule.left);
                     booleanArray[1][s][nt] = true;
                     // here we assume that there are no two identical rules A->a
-                    logProb[1][s][nt] = ruleProbModel.getIntervalFor(rule).getLnLength();
+                    logProb[1][s][nt] = singleTerminalLnProbs[r];
                     backRule[1][s][nt] = rule;
                     backSplit[1][s][nt] = INVALID_SPLIT; // A->a
                     ruleList.add(rule);
@@ -242,7 +266,8 @@ public class CYKParser<T> implements StochasticParser<T> {
         for (int l = 2; l <= n; l++) {//l is the span
             for (int s = 1; s <= n - l + 1; s++) {//s is the start of span
                 for (int p = 1; p < l; p++) {//p is the partitions of the span
-                    for (Rule rule : nonTerminalRules) {
+                    for (int r = 0; r < nonTerminalRules.size(); r++) {
+                        Rule rule = nonTerminalRules.get(r);
                         int a = integerNonTerminalMap.get(rule.left);
                         int b = integerNonTerminalMap.get(rule.right[0]);
                         int c = integerNonTerminalMap.get(rule.right[1]);
@@ -252,7 +277,7 @@ public class CYKParser<T> implements StochasticParser<T> {
 
 //								 Vector<Integer> append = new Vector<>(Arrays.asList(new Integer[]{a,b,c}));
 //								 System.out.println(append);
-                            double prob = ruleProbModel.getIntervalFor(rule).getLnLength()
+                            double prob = nonTerminalLnProbs[r]
                                     + logProb[p][s][b] + logProb[l - p][s + p][c];
                             if (prob > logProb[l][s][a]) {
                                 backRule[l][s][a] = rule;
@@ -0,0 +1,656 @@
+package compression.parser;
+
+import compression.grammar.Category;
+import compression.grammar.EncodedWord;
+import compression.grammar.NonTerminal;
+import compression.grammar.Rule;
+import compression.grammar.Terminal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Recognition of a fixed list of words with grammars that are subsets of a fixed universe of
+ * rules (in SRF normal form), given as a rule mask; tuned for local search, where a candidate
+ * grammar differs from the current grammar in only one or two rules.
+ * <p>
+ * The recognition charts (as in {@link SRFParser#parsable}) of all words under the current
+ * grammar ({@link #setRules}) are kept. A candidate grammar ({@link #setCandidate}) is then
+ * checked from the difference to the current grammar:
+ * <ul>
+ *     <li>if rules are only added, every word the current grammar parses is still parsable;</li>
+ *     <li>if no removed rule occurs in the derivation of a word found with the current grammar,
+ *     that derivation is still valid;</li>
+ *     <li>if rules are removed, the chart can only lose nonterminals, and a cell only needs to be
+ *     recomputed if a smaller cell it is built from has changed, or if it contains the lhs of a
+ *     removed rule; all other cells keep their current masks;</li>
+ *     <li>if rules are removed and others added, a word that the grammar without the removed
+ *     rules parses is parsable; otherwise the word is recognized from scratch.</li>
+ * </ul>
+ * The results are exactly those of {@link SRFParser#parsable} with the candidate grammar.
+ * <p>
+ * Besides a workspace for the longest word and the compiled rules of the current and the
+ * candidate grammar, which are reused for all grammars, an instance keeps one chart of
+ * {@code n(n + 1) / 2} longs for each word of length {@code n}; the charts make up most of its memory.
+ * <p>
+ * This class is not thread-safe.
+ */
+public final class IncrementalRecognizer<T> {
+
+	private final Rule[] universe;
+	private final List<EncodedWord<T>> words;
+	/** terminal ids (see {@link SRFParser}) of the letters of each word */
+	private final int[][] wordTerminalIds;
+
+	/** bit of the lhs and of the nonterminals on the rhs of each rule (0 if there is none) */
+	private final long[] lhsBit, rhs1Bit, rhs2Bit;
+	/** terminal ids on the rhs of each rule, {@link SRFParser#NO_TERMINAL} if there is none */
+	private final int[] terminal1, terminal2;
+	private final long startBit;
+	private final int nTerminals;
+	/** see {@link SRFWorkspace#computeBrackets}; {@code null} if the universe does not allow span pruning */
+	private final int[] bracketOfTerminal;
+	/** the rules of the universe with each lhs, indexed by the bit position of the lhs */
+	private final int[][] rulesByLhs;
+
+	private final SRFWorkspace workspace;
+
+	/** the current grammar and the (start-major) charts of the words under it */
+	private final boolean[] rules;
+	private final long[][] charts;
+	private final boolean[] parses;
+	/** the rules (packed rule mask) of one derivation of each word the current grammar parses */
+	private final long[][] derivationRules;
+	private boolean chartsValid;
+
+	/** the candidate grammar and the same without the rules added to the current grammar */
+	private final boolean[] candidate, reduced;
+	private final Tables candidateTables, reducedTables;
+	/** whether the tables hold the compiled rules of the candidate grammar and of the reduced one */
+	private boolean candidateTablesValid, reducedTablesValid;
+	/** lhs bits of the rules in the current grammar, but not in the candidate */
+	private long removedLhsBits;
+	/** packed rule mask of the rules in the current grammar, but not in the candidate */
+	private final long[] removedRules;
+	/**
+	 * nonterminals that may lose a derivation if no smaller cell changes: the lhs of the removed
+	 * rules and all nonterminals that derive one of them with unit rules of the current grammar
+	 */
+	private long lossBits;
+	private boolean rulesAdded;
+
+	/** scratch space: which starts and ends have a changed cell, indexed by position */
+	private boolean[] changedStart = new boolean[0], changedEnd = new boolean[0];
+	/** scratch space of {@link #addDerivation}: the spans still to derive, and the split of the last type 1 rule found */
+	private int[] derivationStack = new int[48];
+	private int derivationSplit;
+
+	/**
+	 * @param universe    all rules that grammars may contain; rule masks are indexed like this array
+	 * @param startSymbol start symbol of all grammars
+	 * @param words       the words to recognize
+	 * @throws IllegalArgumentException if a rule is not in SRF normal form or the universe has
+	 *                                  more than {@link SRFParser#MAX_RECOGNITION_NONTERMINALS} nonterminals
+	 */
+	public IncrementalRecognizer(final Rule[] universe, final NonTerminal startSymbol, final List<EncodedWord<T>> words) {
+		this.universe = universe.clone();
+		this.words = List.copyOf(words);
+		int m = universe.length;
+		lhsBit = new long[m];
+		rhs1Bit = new long[m];
+		rhs2Bit = new long[m];
+		terminal1 = new int[m];
+		terminal2 = new int[m];
+		Map<NonTerminal, Long> bits = new HashMap<>();
+		bits.put(startSymbol, 1L);
+		List<Terminal<T>> terminals = new ArrayList<>();
+		int[] bracket = new int[2 * m];
+		boolean bracketsOnlyInType3 = true;
+		for (int r = 0; r < m; r++) {
+			Rule rule = universe[r];
+			Category[] rhs = rule.right;
+			lhsBit[r] = bitOf(bits, rule.left);
+			terminal1[r] = terminal2[r] = SRFParser.NO_TERMINAL;
+			if (rhs.length == 1 && Category.isTerminal(rhs[0])) {
+				terminal1[r] = terminalId(terminals, rhs[0]);
+			} else if (rhs.length == 1) {
+				rhs1Bit[r] = bitOf(bits, rhs[0]);
+			} else if (rhs.length == 2 && !Category.isTerminal(rhs[0]) && !Category.isTerminal(rhs[1])) {
+				rhs1Bit[r] = bitOf(bits, rhs[0]);
+				rhs2Bit[r] = bitOf(bits, rhs[1]);
+			} else if (rhs.length == 3 && Category.isTerminal(rhs[0]) && !Category.isTerminal(rhs[1])
+					&& Category.isTerminal(rhs[2])) {
+				terminal1[r] = terminalId(terminals, rhs[0]);
+				rhs1Bit[r] = bitOf(bits, rhs[1]);
+				terminal2[r] = terminalId(terminals, rhs[2]);
+				if (bracket[terminal1[r]] == -1 || bracket[terminal2[r]] == 1 || terminal1[r] == terminal2[r])
+					bracketsOnlyInType3 = false;
+				bracket[terminal1[r]] = 1;
+				bracket[terminal2[r]] = -1;
+			} else {
+				throw new IllegalArgumentException("Error found in rule: " + rule + " rule is not in SRF form");
+			}
+		}
+		for (int r = 0; r < m; r++) {
+			if (isType2(r) && bracket[terminal1[r]] != 0) bracketsOnlyInType3 = false;
+		}
+		startBit = 1L;
+		nTerminals = terminals.size();
+		bracketOfTerminal = bracketsOnlyInType3 ? Arrays.copyOf(bracket, nTerminals) : null;
+		rulesByLhs = new int[bits.size()][];
+		for (int a = 0; a < rulesByLhs.length; a++) {
+			final long bit = 1L << a;
+			rulesByLhs[a] = IntStream.range(0, m).filter(r -> lhsBit[r] == bit).toArray();
+		}
+
+		workspace = new SRFWorkspace(bits.size());
+		wordTerminalIds = new int[this.words.size()][];
+		for (int w = 0; w < this.words.size(); w++) {
+			EncodedWord<T> word = this.words.get(w);
+			int[] idOfSymbol = new int[word.alphabet().size()];
+			for (int k = 0; k < idOfSymbol.length; k++) {
+				idOfSymbol[k] = SRFParser.NO_TERMINAL;
+				for (int id = 0; id < nTerminals; id++) {
+					if (terminals.get(id).equals(word.alphabet().get(k))) {
+						idOfSymbol[k] = id;
+						break;
+					}
+				}
+			}
+			wordTerminalIds[w] = new int[word.length()];
+			for (int i = 0; i < word.length(); i++) wordTerminalIds[w][i] = idOfSymbol[word.symbolAt(i)];
+		}
+
+		rules = new boolean[m];
+		candidate = new boolean[m];
+		reduced = new boolean[m];
+		charts = new long[this.words.size()][];
+		parses = new boolean[this.words.size()];
+		derivationRules = new long[this.words.size()][(m + 63) >>> 6];
+		removedRules = new long[(m + 63) >>> 6];
+		candidateTables = new Tables();
+		reducedTables = new Tables();
+		setRules(rules);
+	}
+
+	private static long bitOf(final Map<NonTerminal, Long> bits, final Category nt) {
+		if (!bits.containsKey((NonTerminal) nt)) {
+			if (bits.size() == SRFParser.MAX_RECOGNITION_NONTERMINALS)
+				throw new IllegalArgumentException("more than " + SRFParser.MAX_RECOGNITION_NONTERMINALS + " nonterminals");
+			bits.put((NonTerminal) nt, 1L << bits.size());
+		}
+		return bits.get(nt);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> int terminalId(final List<Terminal<T>> terminals, final Category terminal) {
+		for (int id = 0; id < terminals.size(); id++) {
+			if (terminals.get(id).equals(terminal)) return id;
+		}
+		terminals.add((Terminal<T>) terminal);
+		return terminals.size() - 1;
+	}
+
+	private boolean isType2(final int r) {
+		return terminal1[r] != SRFParser.NO_TERMINAL && terminal2[r] == SRFParser.NO_TERMINAL;
+	}
+
+	private boolean isType4(final int r) {
+		return terminal1[r] == SRFParser.NO_TERMINAL && rhs2Bit[r] == 0L;
+	}
+
+	/** @return the number of words */
+	public int size() {
+		return words.size();
+	}
+
+	/** @return a copy of the rule mask of the current grammar */
+	public boolean[] getRules() {
+		return rules.clone();
+	}
+
+	/**
+	 * Makes mask the current grammar and recognizes all words with it
+	 * (unless it already is the current grammar).
+	 */
+	public void setRules(final boolean[] mask) {
+		checkLength(mask);
+		if (chartsValid && Arrays.equals(mask, rules)) return;
+		System.arraycopy(mask, 0, rules, 0, rules.length);
+		recognizeAll();
+	}
+
+	/** Like {@link #setRules(boolean[])}, with the rule mask packed into a bit set (of at most {@code universe.length} bits). */
+	public void setRules(final BitSet mask) {
+		checkLength(mask);
+		if (chartsValid && equalsPacked(rules, mask)) return;
+		for (int r = 0; r < rules.length; r++) rules[r] = mask.get(r);
+		recognizeAll();
+	}
+
+	private static boolean equalsPacked(final boolean[] mask, final BitSet packed) {
+		for (int r = 0; r < mask.length; r++) {
+			if (mask[r] != packed.get(r)) return false;
+		}
+		return true;
+	}
+
+	private void recognizeAll() {
+		// the candidate tables are recompiled for the candidate grammar on first use
+		final Tables tables = candidateTables;
+		tables.compile(rules);
+		for (int w = 0; w < words.size(); w++) {
+			parses[w] = recognize(w, tables);
+			Arrays.fill(derivationRules[w], 0L);
+			if (parses[w]) addDerivation(w);
+			int cells = wordTerminalIds[w].length * (wordTerminalIds[w].length + 1) / 2;
+			charts[w] = Arrays.copyOf(workspace.masks, cells);
+		}
+		chartsValid = true;
+		System.arraycopy(rules, 0, candidate, 0, candidate.length);
+		updateCandidate();
+	}
+
+	/** @return whether the current grammar parses word w */
+	public boolean parses(final int w) {
+		return parses[w];
+	}
+
+	/** Sets the candidate grammar for {@link #candidateParses(int)}. */
+	public void setCandidate(final boolean[] mask) {
+		checkLength(mask);
+		System.arraycopy(mask, 0, candidate, 0, candidate.length);
+		updateCandidate();
+	}
+
+	/** Like {@link #setCandidate(boolean[])}, with the rule mask packed into a bit set (of at most {@code universe.length} bits). */
+	public void setCandidate(final BitSet mask) {
+		checkLength(mask);
+		for (int r = 0; r < candidate.length; r++) candidate[r] = mask.get(r);
+		updateCandidate();
+	}
+
+	private void updateCandidate() {
+		removedLhsBits = 0L;
+		Arrays.fill(removedRules, 0L);
+		rulesAdded = false;
+		for (int r = 0; r < rules.length; r++) {
+			reduced[r] = rules[r] && candidate[r];
+			if (rules[r] && !candidate[r]) {
+				removedLhsBits |= lhsBit[r];
+				removedRules[r >>> 6] |= 1L << r;
+			}
+			if (!rules[r] && candidate[r]) rulesAdded = true;
+		}
+		lossBits = removedLhsBits;
+		for (long before = ~lossBits; before != lossBits; ) {
+			before = lossBits;
+			for (int r = 0; r < rules.length; r++) {
+				if (rules[r] && isType4(r) && (lossBits & rhs1Bit[r]) != 0L) lossBits |= lhsBit[r];
+			}
+		}
+		candidateTablesValid = false;
+		reducedTablesValid = false;
+	}
+
+	/** @return whether the candidate grammar parses word w */
+	public boolean candidateParses(final int w) {
+		if (parses[w]) {
+			if (removedLhsBits == 0L) return true;
+			if (!usesRemovedRule(w)) return true;
+			if (recognizeAfterRemoval(w)) return true;
+		}
+		if (!rulesAdded) return false;
+		if (!candidateTablesValid) {
+			candidateTables.compile(candidate);
+			candidateTablesValid = true;
+		}
+		return recognize(w, candidateTables);
+	}
+
+	private boolean usesRemovedRule(final int w) {
+		for (int i = 0; i < removedRules.length; i++) {
+			if ((derivationRules[w][i] & removedRules[i]) != 0L) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Adds the rules of a derivation of word w from the start symbol to {@link #derivationRules},
+	 * reading the chart of w under the current grammar from the workspace. The spans still to derive
+	 * are kept on an explicit stack (length, start, nonterminal), as in {@link SRFParser}, so that the
+	 * depth of the derivation is not limited by the thread stack.
+	 */
+	private void addDerivation(final int w) {
+		int[] stack = derivationStack;
+		int top = 0;
+		stack[top++] = wordTerminalIds[w].length;
+		stack[top++] = 1;
+		stack[top++] = 0;
+		while (top > 0) {
+			final int a = stack[--top], s = stack[--top], l = stack[--top];
+			int r = nonUnitRule(w, l, s, a);
+			if (r < 0) r = nonUnitRule(w, l, s, addUnitChain(w, l, s, a, 0L));
+			addRule(w, r);
+			if (top + 6 > stack.length) stack = derivationStack = Arrays.copyOf(stack, 2 * stack.length);
+			if (rhs2Bit[r] != 0L) {
+				final int p = derivationSplit;
+				stack[top++] = p;
+				stack[top++] = s;
+				stack[top++] = Long.numberOfTrailingZeros(rhs1Bit[r]);
+				stack[top++] = l - p;
+				stack[top++] = s + p;
+				stack[top++] = Long.numberOfTrailingZeros(rhs2Bit[r]);
+			} else if (rhs1Bit[r] != 0L) {
+				stack[top++] = l - 2;
+				stack[top++] = s + 1;
+				stack[top++] = Long.numberOfTrailingZeros(rhs1Bit[r]);
+			}
+		}
+	}
+
+	/**
+	 * @return a rule of the current grammar that is not a unit rule and derives the nonterminal a over
+	 * the span (l, s) of word w from the chart in the workspace, -1 if there is none; for a type 1
+	 * rule, the length of its left part is left in {@link #derivationSplit}
+	 */
+	private int nonUnitRule(final int w, final int l, final int s, final int a) {
+		final int[] ids = wordTerminalIds[w];
+		final SRFWorkspace ws = workspace;
+		final long[] masks = ws.masks, masksByEnd = ws.masksByEnd;
+		for (int r : rulesByLhs[a]) {
+			if (!rules[r]) continue;
+			if (rhs2Bit[r] != 0L) {
+				for (int p = ws.nextSplit(s, 0); p < l; p = ws.nextSplit(s, p)) {
+					if ((masks[ws.maskIndex(p, s)] & rhs1Bit[r]) != 0L
+							&& (masksByEnd[ws.maskEndIndex(l - p, s + p)] & rhs2Bit[r]) != 0L) {
+						derivationSplit = p;
+						return r;
+					}
+				}
+			} else if (isType2(r)) {
+				if (l == 1 && ids[s - 1] == terminal1[r]) return r;
+			} else if (terminal1[r] != SRFParser.NO_TERMINAL) {
+				if (l >= 3 && ids[s - 1] == terminal1[r] && ids[s + l - 2] == terminal2[r]
+						&& (masks[ws.maskIndex(l - 2, s + 1)] & rhs1Bit[r]) != 0L) return r;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds a chain of unit rules of the current grammar from the nonterminal a to one that
+	 * {@link #nonUnitRule} derives over the span (l, s), and adds its rules to {@link #derivationRules}.
+	 * The chain stays within one cell and never repeats a nonterminal, so the recursion is at most
+	 * as deep as there are nonterminals.
+	 *
+	 * @param unitPath nonterminals already on the chain; they are not tried again
+	 * @return the last nonterminal of the chain, -1 if there is none
+	 */
+	private int addUnitChain(final int w, final int l, final int s, final int a, final long unitPath) {
+		if (unitPath != 0L && nonUnitRule(w, l, s, a) >= 0) return a;
+		final long path = unitPath | 1L << a;
+		final long cell = workspace.masks[workspace.maskIndex(l, s)];
+		for (int r : rulesByLhs[a]) {
+			if (rules[r] && isType4(r) && (cell & rhs1Bit[r] & ~path) != 0L) {
+				final int end = addUnitChain(w, l, s, Long.numberOfTrailingZeros(rhs1Bit[r]), path);
+				if (end >= 0) {
+					addRule(w, r);
+					return end;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private void addRule(final int w, final int r) {
+		derivationRules[w][r >>> 6] |= 1L << r;
+	}
+
+	private void checkLength(final boolean[] mask) {
+		if (mask.length != universe.length)
+			throw new IllegalArgumentException("rule mask has length " + mask.length + ", not " + universe.length);
+	}
+
+	private void checkLength(final BitSet mask) {
+		if (mask.length() > universe.length)
+			throw new IllegalArgumentException("rule mask has bit " + (mask.length() - 1) + " set, but only " + universe.length + " rules");
+	}
+
+	/** Recognizes word w from scratch, leaving its chart in the workspace. */
+	private boolean recognize(final int w, final Tables tables) {
+		final int[] ids = wordTerminalIds[w];
+		final int n = ids.length;
+		final SRFWorkspace ws = workspace;
+		ws.prepareMasks(n);
+		ws.computeBrackets(n, ids, bracketOfTerminal);
+		for (int l = 1; l <= n; l++) {
+			for (int s = 1; s + l - 1 <= n; s++) {
+				if (!ws.balanced(l, s)) continue;
+				long mask = tables.recognizeCell(ws, l, s, ids);
+				ws.masks[ws.maskIndex(l, s)] = mask;
+				ws.masksByEnd[ws.maskEndIndex(l, s)] = mask;
+			}
+		}
+		return n > 0 && (ws.masks[ws.maskIndex(n, 1)] & startBit) != 0L;
+	}
+
+	/**
+	 * Recognizes word w with the current grammar without the removed rules, starting from the
+	 * chart of the current grammar.
+	 */
+	private boolean recognizeAfterRemoval(final int w) {
+		final int[] ids = wordTerminalIds[w];
+		final int n = ids.length;
+		final SRFWorkspace ws = workspace;
+		ws.prepareMasks(n);
+		ws.computeBrackets(n, ids, bracketOfTerminal);
+		final long[] masks = ws.masks, masksByEnd = ws.masksByEnd;
+		System.arraycopy(charts[w], 0, masks, 0, charts[w].length);
+		for (int e = 1; e <= n; e++) {
+			for (int l = 1; l <= e; l++) masksByEnd[ws.maskEndIndex(l, e - l + 1)] = masks[ws.maskIndex(l, e - l + 1)];
+		}
+		if (!reducedTablesValid) {
+			reducedTables.compile(reduced);
+			reducedTablesValid = true;
+		}
+		if (changedStart.length < n + 2) {
+			changedStart = new boolean[2 * n + 2];
+			changedEnd = new boolean[2 * n + 2];
+		}
+		Arrays.fill(changedStart, 0, n + 2, false);
+		Arrays.fill(changedEnd, 0, n + 2, false);
+		for (int l = 1; l <= n; l++) {
+			for (int s = 1; s + l - 1 <= n; s++) {
+				final int e = s + l - 1;
+				final int cell = ws.maskIndex(l, s);
+				final long old = masks[cell];
+				// cells only lose nonterminals, so empty cells stay empty
+				if (old == 0L) continue;
+				// left parts start at s, right parts end at e, the inner part of a type 3 rule starts at s + 1
+				final boolean partsChanged = changedStart[s] || changedEnd[e] || (l >= 3 && changedStart[s + 1]);
+				final long unsure = partsChanged ? old : old & lossBits;
+				if (unsure == 0L) continue;
+				final long mask = reducedTables.rederiveCell(ws, l, s, ids, old & ~unsure, unsure);
+				if (mask != old) {
+					masks[cell] = mask;
+					masksByEnd[ws.maskEndIndex(l, s)] = mask;
+					changedStart[s] = true;
+					changedEnd[e] = true;
+				}
+			}
+		}
+		return (masks[ws.maskIndex(n, 1)] & startBit) != 0L;
+	}
+
+	/** The rules of one grammar, compiled for recognition as in {@link SRFParser}. */
+	private final class Tables {
+		/** type 1 rules, grouped by (B, A), sorted by the index of B, in the first {@code type1GroupStart[k]} entries; see {@link SRFParser} */
+		final long[] type1RightMask, type1LhsBit;
+		final int[] type1GroupStart;
+		/** lhs bits of the type 2 rules for each terminal id */
+		final long[] leafMask;
+		/**
+		 * inner and lhs bits of the type 3 rules for each pair of terminal ids {@code open * nTerminals + close};
+		 * the arrays have room for all rules of the universe, the first {@code type3Count} entries are used
+		 */
+		final long[][] type3InnerBit, type3LhsBit;
+		final int[] type3Count;
+		/** the type 4 rules in the first {@code type4Count} entries */
+		final long[] type4RhsBit, type4LhsBit;
+		int type4Count;
+
+		/** the type 1 rules of the grammar, indexed by the bit positions of B and A */
+		private final long[][] rightMask;
+
+		/** Allocates tables large enough for any grammar of the universe; they are empty until compiled. */
+		Tables() {
+			final int k = workspace.stride - 1;
+			rightMask = new long[k][k];
+			type1RightMask = new long[k * k];
+			type1LhsBit = new long[k * k];
+			type1GroupStart = new int[k + 1];
+			leafMask = new long[nTerminals];
+			type3Count = new int[nTerminals * nTerminals];
+			for (int r = 0; r < universe.length; r++) {
+				if (terminal2[r] != SRFParser.NO_TERMINAL) type3Count[terminal1[r] * nTerminals + terminal2[r]]++;
+			}
+			type3InnerBit = new long[type3Count.length][];
+			type3LhsBit = new long[type3Count.length][];
+			for (int p = 0; p < type3Count.length; p++) {
+				type3InnerBit[p] = new long[type3Count[p]];
+				type3LhsBit[p] = new long[type3Count[p]];
+			}
+			type4RhsBit = new long[universe.length];
+			type4LhsBit = new long[universe.length];
+		}
+
+		/** Compiles the rules of mask into these tables, replacing the rules compiled before. */
+		void compile(final boolean[] mask) {
+			final int k = rightMask.length;
+			for (long[] row : rightMask) Arrays.fill(row, 0L);
+			Arrays.fill(leafMask, 0L);
+			Arrays.fill(type3Count, 0);
+			type4Count = 0;
+			for (int r = 0; r < mask.length; r++) {
+				if (!mask[r]) continue;
+				if (rhs2Bit[r] != 0L) {
+					rightMask[Long.numberOfTrailingZeros(rhs1Bit[r])][Long.numberOfTrailingZeros(lhsBit[r])] |= rhs2Bit[r];
+				} else if (isType2(r)) {
+					leafMask[terminal1[r]] |= lhsBit[r];
+				} else if (terminal1[r] != SRFParser.NO_TERMINAL) {
+					final int p = terminal1[r] * nTerminals + terminal2[r];
+					type3InnerBit[p][type3Count[p]] = rhs1Bit[r];
+					type3LhsBit[p][type3Count[p]++] = lhsBit[r];
+				} else {
+					type4RhsBit[type4Count] = rhs1Bit[r];
+					type4LhsBit[type4Count++] = lhsBit[r];
+				}
+			}
+			int g = 0;
+			for (int b = 0; b < k; b++) {
+				type1GroupStart[b] = g;
+				for (int a = 0; a < k; a++) {
+					if (rightMask[b][a] == 0L) continue;
+					type1RightMask[g] = rightMask[b][a];
+					type1LhsBit[g] = 1L << a;
+					g++;
+				}
+			}
+			type1GroupStart[k] = g;
+		}
+
+		/** @return the mask of the balanced span (l, s), whose smaller cells are complete */
+		long recognizeCell(final SRFWorkspace ws, final int l, final int s, final int[] ids) {
+			final long[] masks = ws.masks, masksByEnd = ws.masksByEnd;
+			long mask = 0L;
+			if (l == 1) {
+				if (ids[s - 1] != SRFParser.NO_TERMINAL) mask = leafMask[ids[s - 1]];
+			}
+			for (int p = ws.nextSplit(s, 0); p < l; p = ws.nextSplit(s, p)) {
+				final long left = masks[ws.maskIndex(p, s)];
+				if (left == 0L) continue;
+				final long right = masksByEnd[ws.maskEndIndex(l - p, s + p)];
+				if (right == 0L) continue;
+				for (long bits = left; bits != 0L; bits &= bits - 1) {
+					final int b = Long.numberOfTrailingZeros(bits);
+					for (int g = type1GroupStart[b]; g < type1GroupStart[b + 1]; g++) {
+						if ((right & type1RightMask[g]) != 0L) mask |= type1LhsBit[g];
+					}
+				}
+			}
+			if (l >= 3) {
+				final int open = ids[s - 1], close = ids[s + l - 2];
+				if (open != SRFParser.NO_TERMINAL && close != SRFParser.NO_TERMINAL) {
+					final long inner = masks[ws.maskIndex(l - 2, s + 1)];
+					final int pair = open * nTerminals + close;
+					final long[] innerBit = type3InnerBit[pair];
+					final long[] lhs = type3LhsBit[pair];
+					for (int i = 0; i < type3Count[pair]; i++) {
+						if ((inner & innerBit[i]) != 0L) mask |= lhs[i];
+					}
+				}
+			}
+			return closeUnderUnitRules(mask);
+		}
+
+		/**
+		 * Like {@link #recognizeCell}, but only finds out which of the unsure nonterminals of the
+		 * balanced span (l, s) are still derivable, stopping as soon as all of them are.
+		 *
+		 * @param sure   nonterminals known to be derivable
+		 * @param unsure nonterminals that may be derivable; all others are known not to be
+		 * @return the mask of the span
+		 */
+		long rederiveCell(final SRFWorkspace ws, final int l, final int s, final int[] ids, final long sure,
+		                  final long unsure) {
+			final long[] masks = ws.masks, masksByEnd = ws.masksByEnd;
+			long found = 0L;
+			if (l == 1) {
+				if (ids[s - 1] != SRFParser.NO_TERMINAL) found = leafMask[ids[s - 1]] & unsure;
+			}
+			if (l >= 3) {
+				final int open = ids[s - 1], close = ids[s + l - 2];
+				if (open != SRFParser.NO_TERMINAL && close != SRFParser.NO_TERMINAL) {
+					final long inner = masks[ws.maskIndex(l - 2, s + 1)];
+					final int pair = open * nTerminals + close;
+					final long[] innerBit = type3InnerBit[pair];
+					final long[] lhs = type3LhsBit[pair];
+					for (int i = 0; i < type3Count[pair]; i++) {
+						if ((inner & innerBit[i]) != 0L) found |= lhs[i] & unsure;
+					}
+				}
+			}
+			for (int p = ws.nextSplit(s, 0); p < l && found != unsure; p = ws.nextSplit(s, p)) {
+				final long left = masks[ws.maskIndex(p, s)];
+				if (left == 0L) continue;
+				final long right = masksByEnd[ws.maskEndIndex(l - p, s + p)];
+				if (right == 0L) continue;
+				final long missing = unsure & ~found;
+				for (long bits = left; bits != 0L; bits &= bits - 1) {
+					final int b = Long.numberOfTrailingZeros(bits);
+					for (int g = type1GroupStart[b]; g < type1GroupStart[b + 1]; g++) {
+						if ((type1LhsBit[g] & missing) != 0L && (right & type1RightMask[g]) != 0L) found |= type1LhsBit[g];
+					}
+				}
+			}
+			return closeUnderUnitRules(sure | found);
+		}
+
+		/** Applies type 4 rules until no more nonterminals are added; chains of unit rules are short. */
+		private long closeUnderUnitRules(long mask) {
+			for (long before = ~mask; before != mask; ) {
+				before = mask;
+				for (int i = 0; i < type4Count; i++) {
+					if ((mask & type4RhsBit[i]) != 0L) mask |= type4LhsBit[i];
+				}
+			}
+			return mask;
+		}
+	}
+}
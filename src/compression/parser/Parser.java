@@ -17,6 +17,17 @@ public interface Parser<T> {
 
 	List<Rule> leftmostDerivationFor(List<Terminal<T>> word) throws UnparsableException;
 
+	/**
+	 * Like {@link #leftmostDerivationFor(List)}, but gives the rules by their
+	 * {@link Grammar#getRuleId(Rule) ids} in {@link #getGrammar()}.
+	 */
+	default int[] leftmostDerivationIdsFor(final List<Terminal<T>> word) throws UnparsableException {
+		List<Rule> derivation = leftmostDerivationFor(word);
+		int[] res = new int[derivation.size()];
+		for (int i = 0; i < res.length; i++) res[i] = getGrammar().getRuleId(derivation.get(i));
+		return res;
+	}
+
 	default boolean parsable(final List<Terminal<T>> word) {
 		try {
 			leftmostDerivationFor(word);
@@ -5,10 +5,19 @@ import compression.grammargenerator.UnparsableException;
 import compression.samplegrammars.model.RuleProbModel;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 /**
  * @author Sebastian Wild (wild@liverpool.ac.uk)
  *
+ * The rule probabilities are queried from the {@link RuleProbModel} once, when the parser is
+ * created, by {@link RuleProbModel#lnProb(int) rule id}, so the model must be a model of the
+ * grammar of the parser and must not change its probabilities afterwards (adaptive models are
+ * not suitable for parsing).
+ *
  * This class is not thread-safe.
  */
 
@@ -21,20 +30,34 @@ public class SRFParser<T> implements StochasticParser<T> {
     Map<NonTerminal, Integer> integerNonTerminalMap;
     Map<Integer, NonTerminal> nonTerminalIntegerMap;
 
-    boolean[][][] booleanArray;
-    double[][][] logProb;
-    Rule[][][] backRule;
-    int[][][] backSplit;
+    /** DP tables, reused for all words parsed with this parser */
+    private final SRFWorkspace workspace;
+
+    /** Default for the shortest words that are filled in parallel, see {@link #setParallelFill}. */
+    public static final int DEFAULT_PARALLEL_MIN_LENGTH = 500;
+    /** Number of span starts below which a span length is not split further into parallel tasks. */
+    private static final int PARALLEL_CHUNK = 32;
+    /** pool for filling the spans of one length in parallel, {@code null} for sequential fills */
+    private ForkJoinPool parallelFillPool = null;
+    private int parallelMinLength = DEFAULT_PARALLEL_MIN_LENGTH;
 
     ArrayList<String> sortedNonTerminals;
 
     public static final int INVALID_SPLIT = -1;
+    /** back pointer of cells that are not derivable */
+    static final int NO_RULE = -1;
     /**
      * type 1 Ai→ Aj Al
      */
     private final List<Rule> type1Rules;
 
-    private final List<Type1RuleIndices> type1RuleIndices;
+    private final Type1RuleIndices[] type1RuleIndices;
+    /**
+     * type 1 rules grouped by their left child B (in list order within a group): the rules with
+     * B of index b are {@code type1ByLeft[type1ByLeftStart[b]], ..., type1ByLeft[type1ByLeftStart[b + 1] - 1]}
+     */
+    private final Type1RuleIndices[] type1ByLeft;
+    private final int[] type1ByLeftStart;
 
     /**
      * type2 Ai → .
@@ -49,6 +72,64 @@ public class SRFParser<T> implements StochasticParser<T> {
      */
     private final List<Rule> type4Rules;
 
+    /** terminal id of terminals that occur in no type 2 or type 3 rule */
+    static final int NO_TERMINAL = -1;
+    /**
+     * distinct terminals of type 2 and type 3 rules (up to equals);
+     * the position of a terminal is its terminal id
+     */
+    private final List<Terminal<T>> terminals;
+    /** terminal ids of the terminals in the words seen so far, see {@link #terminalId(Terminal)} */
+    private final Map<Terminal<T>, Integer> terminalIds = new HashMap<>();
+    /** positions in {@link #type2Rules} of the type 2 rules for each terminal id */
+    private final int[][] type2ByTerminal;
+    /**
+     * positions in {@link #type3Rules} of the type 3 rules for each pair of terminal ids,
+     * at index {@code open * terminals.size() + close}
+     */
+    private final int[][] type3ByTerminals;
+    /**
+     * +1 for terminal ids of opening brackets (left of type 3 rules), -1 for closing brackets and
+     * 0 for other terminals; {@code null} if the grammar does not allow span pruning,
+     * see {@link SRFWorkspace#computeBrackets(int, int[], int[])}
+     */
+    private final int[] bracketOfTerminal;
+
+    /**
+     * ln of the probability of each rule under {@link #ruleProbModel}, snapshotted at construction.
+     * Rule indices enumerate {@link #type1Rules}, {@link #type2Rules}, {@link #type3Rules} and
+     * {@link #type4Rules} in this order; the latter start at the given offsets.
+     * {@code null} for {@link RuleProbModel#DONT_CARE}, where every rule has probability 1.
+     */
+    private final double[] lnProbByRuleIndex;
+    /** all rules by rule index, see {@link #lnProbByRuleIndex}; the back pointers store rule indices */
+    private final Rule[] rulesByIndex;
+    /** the {@link Grammar#getRuleId(Rule) id} in {@link #grammar} of each rule, by rule index */
+    private final int[] ruleIdByIndex;
+    private final int type2Offset, type3Offset, type4Offset;
+
+    /**
+     * Largest number of nonterminals for which {@link #parsable(List)} uses the recognition-only
+     * chart with one {@code long} bitmask (bit {@code nt - 1} for nonterminal index {@code nt})
+     * per cell; larger grammars fall back to the Viterbi tables.
+     */
+    public static final int MAX_RECOGNITION_NONTERMINALS = Long.SIZE;
+
+    /**
+     * Recognition tables, {@code null} if the grammar has too many nonterminals.
+     * Type 1 rules are grouped by (B, A): A is derivable if B is in the left cell and
+     * any C of a rule A → B C is in the right cell. The groups are sorted by B, those with
+     * B of index b start at {@code type1GroupStart[b]}.
+     */
+    private final long[] type1RightMask, type1LhsBit;
+    private final int[] type1GroupStart;
+    /** lhs bits of type 2 rules, parallel to {@link #type2Rules} */
+    private final long[] type2LhsBit;
+    /** inner and lhs bits of type 3 rules, parallel to {@link #type3Rules} */
+    private final long[] type3InnerBit, type3LhsBit;
+    /** rhs and lhs bits of type 4 rules, parallel to {@link #type4Rules} (sorted by lhs) */
+    private final long[] type4RhsBit, type4LhsBit;
+
     public SRFParser(final Grammar<T> grammar) {
         this(grammar, RuleProbModel.DONT_CARE);
     }
@@ -100,18 +181,218 @@ public class SRFParser<T> implements StochasticParser<T> {
         }
 
         computeNonterminalToIndicesMap();
+        workspace = new SRFWorkspace(grammar.getNonTerminals().size());
+
+        // Optimization: find type 2 and 3 rules by terminal ids instead of comparing terminals
+        terminals = new ArrayList<>();
+        int[] type2Terminal = new int[type2Rules.size()];
+        for (int i = 0; i < type2Rules.size(); i++) {
+            type2Terminal[i] = addTerminal(type2Rules.get(i).right[0]);
+        }
+        int[] type3Open = new int[type3Rules.size()], type3Close = new int[type3Rules.size()];
+        for (int i = 0; i < type3Rules.size(); i++) {
+            type3Open[i] = addTerminal(type3Rules.get(i).right[0]);
+            type3Close[i] = addTerminal(type3Rules.get(i).right[2]);
+        }
+        type2ByTerminal = new int[terminals.size()][];
+        for (int id = 0; id < terminals.size(); id++) {
+            type2ByTerminal[id] = positionsOf(type2Terminal, id, null, 0);
+        }
+        type3ByTerminals = new int[terminals.size() * terminals.size()][];
+        for (int open = 0; open < terminals.size(); open++) {
+            for (int close = 0; close < terminals.size(); close++) {
+                type3ByTerminals[open * terminals.size() + close] = positionsOf(type3Open, open, type3Close, close);
+            }
+        }
+
+        // Optimization: if brackets occur only in type 3 rules, only balanced spans are derivable
+        int[] bracket = new int[terminals.size()];
+        boolean bracketsOnlyInType3 = !type3Rules.isEmpty();
+        for (int id : type3Open) bracket[id] = 1;
+        for (int id : type3Close) {
+            if (bracket[id] == 1) bracketsOnlyInType3 = false;
+            bracket[id] = -1;
+        }
+        for (int id : type2Terminal) {
+            if (bracket[id] != 0) bracketsOnlyInType3 = false;
+        }
+        bracketOfTerminal = bracketsOnlyInType3 ? bracket : null;
 
         // Optimization: cache type1 rule indices
-        type1RuleIndices = new ArrayList<>();
-        for (Rule rule : type1Rules) {
+        type1RuleIndices = new Type1RuleIndices[type1Rules.size()];
+        for (int i = 0; i < type1Rules.size(); i++) {
+            Rule rule = type1Rules.get(i);
             //noinspection SuspiciousMethodCalls
-            type1RuleIndices.add(new Type1RuleIndices(
+            type1RuleIndices[i] = new Type1RuleIndices(
                     this.integerNonTerminalMap.get(rule.left),
                     this.integerNonTerminalMap.get(rule.right[0]),
                     this.integerNonTerminalMap.get(rule.right[1]),
-                    rule
-            ));
+                    rule,
+                    i
+            );
+        }
+        type1ByLeft = type1RuleIndices.clone();
+        Arrays.sort(type1ByLeft, Comparator.comparingInt(ruleIndices -> ruleIndices.rhs1)); // stable
+        type1ByLeftStart = new int[grammar.getNonTerminals().size() + 2];
+        for (Type1RuleIndices ruleIndices : type1RuleIndices) type1ByLeftStart[ruleIndices.rhs1 + 1]++;
+        for (int b = 1; b < type1ByLeftStart.length; b++) type1ByLeftStart[b] += type1ByLeftStart[b - 1];
+
+        // Optimization: look up rule probabilities once instead of in the inner loop
+        type2Offset = type1Rules.size();
+        type3Offset = type2Offset + type2Rules.size();
+        type4Offset = type3Offset + type3Rules.size();
+        rulesByIndex = new Rule[type4Offset + type4Rules.size()];
+        ruleIdByIndex = new int[rulesByIndex.length];
+        int ruleIndex = 0;
+        for (List<Rule> rules : List.of(type1Rules, type2Rules, type3Rules, type4Rules)) {
+            for (Rule rule : rules) {
+                ruleIdByIndex[ruleIndex] = grammar.getRuleId(rule);
+                rulesByIndex[ruleIndex++] = rule;
+            }
+        }
+        if (ruleProbModel == RuleProbModel.DONT_CARE) {
+            lnProbByRuleIndex = null;
+        } else {
+            lnProbByRuleIndex = new double[rulesByIndex.length];
+            for (int i = 0; i < rulesByIndex.length; i++) {
+                lnProbByRuleIndex[i] = ruleProbModel.lnProb(ruleIdByIndex[i]);
+            }
+        }
+
+        if (grammar.getNonTerminals().size() <= MAX_RECOGNITION_NONTERMINALS) {
+            // sorted by B, then A
+            Map<Long, Long> rightMaskByLeftAndLhs = new TreeMap<>();
+            for (Type1RuleIndices ruleIndices : type1RuleIndices) {
+                long key = ((long) ruleIndices.rhs1 << 32) | ruleIndices.lhs;
+                rightMaskByLeftAndLhs.merge(key, bitOf(ruleIndices.rhs2), (x, y) -> x | y);
+            }
+            int k = 0;
+            type1GroupStart = new int[grammar.getNonTerminals().size() + 2];
+            type1RightMask = new long[rightMaskByLeftAndLhs.size()];
+            type1LhsBit = new long[rightMaskByLeftAndLhs.size()];
+            for (Map.Entry<Long, Long> e : rightMaskByLeftAndLhs.entrySet()) {
+                type1GroupStart[(int) (e.getKey() >>> 32) + 1]++;
+                type1LhsBit[k] = bitOf((int) (long) e.getKey());
+                type1RightMask[k] = e.getValue();
+                k++;
+            }
+            for (int b = 1; b < type1GroupStart.length; b++) type1GroupStart[b] += type1GroupStart[b - 1];
+            type2LhsBit = new long[type2Rules.size()];
+            for (int i = 0; i < type2Rules.size(); i++) {
+                type2LhsBit[i] = bitOf(type2Rules.get(i).left);
+            }
+            type3InnerBit = new long[type3Rules.size()];
+            type3LhsBit = new long[type3Rules.size()];
+            for (int i = 0; i < type3Rules.size(); i++) {
+                type3InnerBit[i] = bitOf((NonTerminal) type3Rules.get(i).right[1]);
+                type3LhsBit[i] = bitOf(type3Rules.get(i).left);
+            }
+            type4RhsBit = new long[type4Rules.size()];
+            type4LhsBit = new long[type4Rules.size()];
+            for (int i = 0; i < type4Rules.size(); i++) {
+                type4RhsBit[i] = bitOf((NonTerminal) type4Rules.get(i).right[0]);
+                type4LhsBit[i] = bitOf(type4Rules.get(i).left);
+            }
+        } else {
+            type1RightMask = type1LhsBit = null;
+            type1GroupStart = null;
+            type2LhsBit = null;
+            type3InnerBit = type3LhsBit = null;
+            type4RhsBit = type4LhsBit = null;
+        }
+    }
+
+    /** @return the terminal id of terminal, which is added to {@link #terminals} if new */
+    @SuppressWarnings("unchecked")
+    private int addTerminal(final Category terminal) {
+        for (int id = 0; id < terminals.size(); id++) {
+            if (terminals.get(id).equals(terminal)) return id;
+        }
+        terminals.add((Terminal<T>) terminal);
+        return terminals.size() - 1;
+    }
+
+    /** @return the positions i (ascending) with {@code ids1[i] == id1} and, if ids2 is given, {@code ids2[i] == id2} */
+    private static int[] positionsOf(final int[] ids1, final int id1, final int[] ids2, final int id2) {
+        int[] res = new int[ids1.length];
+        int k = 0;
+        for (int i = 0; i < ids1.length; i++) {
+            if (ids1[i] == id1 && (ids2 == null || ids2[i] == id2)) res[k++] = i;
         }
+        return Arrays.copyOf(res, k);
+    }
+
+    /**
+     * @return the id of the rule terminal that equals terminal (as compared in the rules),
+     * or {@link #NO_TERMINAL} if there is none
+     */
+    private int terminalId(final Terminal<T> terminal) {
+        Integer id = terminalIds.get(terminal);
+        if (id == null) {
+            id = NO_TERMINAL;
+            for (int i = 0; i < terminals.size(); i++) {
+                if (terminals.get(i).equals(terminal)) {
+                    id = i;
+                    break;
+                }
+            }
+            terminalIds.put(terminal, id);
+        }
+        return id;
+    }
+
+    /** @return the terminal ids of the letters of word, in a buffer of the workspace */
+    private int[] terminalIdsOf(final List<Terminal<T>> word) {
+        int[] ids = workspace.terminalIds(word.size());
+        for (int i = 0; i < word.size(); i++) {
+            ids[i] = terminalId(word.get(i));
+        }
+        return ids;
+    }
+
+    /**
+     * @return the terminal ids of the letters of word, in a buffer of the workspace;
+     * the letters are compared with the terminals of the rules once per symbol of the alphabet
+     */
+    private int[] terminalIdsOf(final EncodedWord<T> word) {
+        final List<Terminal<T>> alphabet = word.alphabet();
+        final int[] idOfSymbol = workspace.terminalIdOfSymbol;
+        for (int k = 0; k < alphabet.size(); k++) {
+            idOfSymbol[k] = terminalId(alphabet.get(k));
+        }
+        final int n = word.length();
+        int[] ids = workspace.terminalIds(n);
+        for (int i = 0; i < n; i++) {
+            ids[i] = idOfSymbol[word.symbolAt(i)];
+        }
+        return ids;
+    }
+
+    private long bitOf(final NonTerminal nt) {
+        return bitOf(integerNonTerminalMap.get(nt));
+    }
+
+    private static long bitOf(final int nt) {
+        return 1L << (nt - 1);
+    }
+
+    /**
+     * Opt-in parallel fill of the DP tables: for words of length at least minLength, the spans
+     * of each length are filled in parallel in pool (split into chunks of consecutive starts),
+     * one span length after the other. The results are the same as with a sequential fill.
+     * The parser itself remains not thread-safe.
+     *
+     * @param pool the pool to use, or {@code null} to always fill sequentially (the default)
+     * @param minLength shortest word length that is filled in parallel
+     */
+    public void setParallelFill(final ForkJoinPool pool, final int minLength) {
+        this.parallelFillPool = pool;
+        this.parallelMinLength = minLength;
+    }
+
+    /** {@link #setParallelFill(ForkJoinPool, int)} with {@link #DEFAULT_PARALLEL_MIN_LENGTH}. */
+    public void setParallelFill(final ForkJoinPool pool) {
+        setParallelFill(pool, DEFAULT_PARALLEL_MIN_LENGTH);
     }
 
     @Override
@@ -122,33 +403,78 @@ public class SRFParser<T> implements StochasticParser<T> {
     @SuppressWarnings("MethodDoesntCallSuperMethod")
     @Override
     public boolean parsable(final List<Terminal<T>> word) {
+        return parsable(word.size(), terminalIdsOf(word));
+    }
+
+    /** {@link #parsable(List)} for an encoded word */
+    public boolean parsable(final EncodedWord<T> word) {
+        return parsable(word.length(), terminalIdsOf(word));
+    }
+
+    private boolean parsable(final int n, final int[] terminalIds) {
         // Can avoid the backtrace in super.parsable()
-        int n = word.size();
-        fillTableIgnoreProbs(word);
+        if (type1RightMask != null) return recognize(n, terminalIds);
+        fillTableIgnoreProbs(n, terminalIds);
         int S = integerNonTerminalMap.get(grammar.getStartSymbol());
-        return booleanArray[n][1][S];
+        return n > 0 && workspace.derivable[workspace.index(n, 1, S)];
     }
 
     @Override
     public List<Rule> leftmostDerivationFor(final List<Terminal<T>> word) throws UnparsableException {
+        return leftmostDerivationFor(word.size(), terminalIdsOf(word));
+    }
+
+    /** {@link #leftmostDerivationFor(List)} for an encoded word */
+    public List<Rule> leftmostDerivationFor(final EncodedWord<T> word) throws UnparsableException {
+        return leftmostDerivationFor(word.length(), terminalIdsOf(word));
+    }
+
+    private List<Rule> leftmostDerivationFor(final int n, final int[] terminalIds) throws UnparsableException {
         if (ruleProbModel == null)
             throw new UnsupportedOperationException("No rule probability model provided.");
-        int n = word.size();
-        fillTableIgnoreProbs(word);
+        fillTableIgnoreProbs(n, terminalIds);
         List<Rule> derivation = new ArrayList<>();
-        backtraceDerivation(n, 1, grammar.getStartSymbol(), derivation);
+        backtrace(n, ruleIndex -> derivation.add(rulesByIndex[ruleIndex]), null);
         return derivation;
     }
 
+    /** Like {@link #leftmostDerivationFor(List)}, but the rules are given by their ids, without looking them up. */
+    @Override
+    public int[] leftmostDerivationIdsFor(final List<Terminal<T>> word) throws UnparsableException {
+        return leftmostDerivationIdsFor(word.size(), terminalIdsOf(word));
+    }
+
+    /** {@link #leftmostDerivationIdsFor(List)} for an encoded word */
+    public int[] leftmostDerivationIdsFor(final EncodedWord<T> word) throws UnparsableException {
+        return leftmostDerivationIdsFor(word.length(), terminalIdsOf(word));
+    }
+
+    private int[] leftmostDerivationIdsFor(final int n, final int[] terminalIds) throws UnparsableException {
+        if (ruleProbModel == null)
+            throw new UnsupportedOperationException("No rule probability model provided.");
+        fillTableIgnoreProbs(n, terminalIds);
+        IntStream.Builder derivation = IntStream.builder();
+        backtrace(n, ruleIndex -> derivation.add(ruleIdByIndex[ruleIndex]), null);
+        return derivation.build().toArray();
+    }
+
 
     @Override
     public List<Rule> mostLikelyLeftmostDerivationFor(final List<Terminal<T>> word) throws UnparsableException {
+        return mostLikelyLeftmostDerivationFor(word.size(), terminalIdsOf(word));
+    }
+
+    /** {@link #mostLikelyLeftmostDerivationFor(List)} for an encoded word */
+    public List<Rule> mostLikelyLeftmostDerivationFor(final EncodedWord<T> word) throws UnparsableException {
+        return mostLikelyLeftmostDerivationFor(word.length(), terminalIdsOf(word));
+    }
+
+    private List<Rule> mostLikelyLeftmostDerivationFor(final int n, final int[] terminalIds) throws UnparsableException {
         if (ruleProbModel == null)
             throw new UnsupportedOperationException("No rule probability model provided.");
-        int n = word.size();
-        fillTable(word);
+        fillTable(n, terminalIds);
         List<Rule> derivation = new ArrayList<>();
-        backtraceDerivation(n, 1, grammar.getStartSymbol(), derivation);
+        backtrace(n, ruleIndex -> derivation.add(rulesByIndex[ruleIndex]), null);
         return derivation;
     }
 
@@ -160,213 +486,449 @@ public class SRFParser<T> implements StochasticParser<T> {
         if (ruleProbModel == null)
             throw new UnsupportedOperationException("No rule probability model provided.");
         int n = word.size();
-        fillTable(word);
+        fillTable(n, terminalIdsOf(word));
         List<Terminal<T>> backWord = new ArrayList<>();
-        backtraceWord(n, 1, grammar.getStartSymbol(), backWord);
+        backtrace(n, null, backWord);
         return backWord;
     }
 
 
 
-    private void backtraceWord(int l, int s, final NonTerminal NT, final List<Terminal<T>> result) throws UnparsableException {
-        int nt = integerNonTerminalMap.get(NT);
-        int p = backSplit[l][s][nt];
-        Rule rule = backRule[l][s][nt];
-        if (rule == null) throw new UnparsableException();
-        if (type1Rules.contains(rule)) { // A -> B C
-            assert rule.left == NT;
-            NonTerminal B = (NonTerminal) rule.right[0];
-            NonTerminal C = (NonTerminal) rule.right[1];
-            backtraceWord(p, s, B, result);
-            backtraceWord(l - p, s + p, C, result);
-        } else if(type2Rules.contains(rule)) {
-            // A -> a
-            //noinspection unchecked
-            result.add((Terminal<T>) rule.right[0]);
-        }
-        else if(type3Rules.contains(rule)){
-            // A -> (B)
-            NonTerminal B = (NonTerminal) rule.right[1];
-            //noinspection unchecked
-            result.add((Terminal<T>) rule.right[0]);
-            backtraceWord(l-2, s+1, B, result);
-            //noinspection unchecked
-            result.add((Terminal<T>) rule.right[2]);
-        }
-        else if(type4Rules.contains(rule)){
-            // A -> B
-            NonTerminal B = (NonTerminal) rule.right[0];
-            backtraceWord(l, s, B, result);
-        }
-        else {
-            throw new IllegalStateException("Unknown rule type: " + rule);
-        }
-    }
-
-    private void backtraceDerivation(int l, int s, final NonTerminal NT, final List<Rule> result) throws UnparsableException {
-        int nt = integerNonTerminalMap.get(NT);
-        int p = backSplit[l][s][nt];
-        Rule rule = backRule[l][s][nt];
-        if (rule == null) throw new UnparsableException();
-//        System.out.println(rule);
-        result.add(rule);
-        if (type1Rules.contains(rule)) { // A -> B C
-            //System.out.println("VALUE OF NT IS: "+NT+" VALUE OF RULE.LEFT IS: "+rule.left);
-            assert rule.left.equals(NT);
-            NonTerminal B = (NonTerminal) rule.right[0];
-            NonTerminal C = (NonTerminal) rule.right[1];
-            backtraceDerivation(p, s, B, result);
-            backtraceDerivation(l - p, s + p, C, result);
-        } else if (type2Rules.contains(rule)) {
-            // A -> a
-            return; // nothing to do
-        } else if (type3Rules.contains(rule)) {
-            // A -> (B)
-            NonTerminal B = (NonTerminal) rule.right[1];
-            backtraceDerivation(l - 2, s + 1, B, result);
-        } else if (type4Rules.contains(rule)) {
-            // A -> B
-            NonTerminal B = (NonTerminal) rule.right[0];
-            backtraceDerivation(l, s, B, result);
-        } else {
-            throw new IllegalStateException("Unknown rule type: " + rule);
+    /**
+     * Follows the back pointers from the start symbol for the whole word of length n, in the
+     * order of the leftmost derivation; iterative, so that long words cannot overflow the stack.
+     *
+     * @param derivation if not null, gets the rule indices of the rules of the derivation
+     * @param generated if not null, the terminals of the derived word are appended to it
+     */
+    @SuppressWarnings({"unchecked", "SuspiciousMethodCalls"})
+    private void backtrace(final int n, final IntConsumer derivation, final List<Terminal<T>> generated)
+            throws UnparsableException {
+        // no rule derives the empty word, and l = 0 is the sentinel below
+        if (n == 0) throw new UnparsableException();
+        final SRFWorkspace ws = workspace;
+        // pending (l, s, nt) triples, topmost is expanded next;
+        // l = 0 stands for the closing terminal of the type 3 rule with index s
+        int[] stack = new int[48];
+        int top = 0;
+        stack[top++] = n;
+        stack[top++] = 1;
+        stack[top++] = integerNonTerminalMap.get(grammar.getStartSymbol());
+        while (top > 0) {
+            final int nt = stack[--top], s = stack[--top], l = stack[--top];
+            if (l == 0) {
+                generated.add((Terminal<T>) rulesByIndex[s].right[2]);
+                continue;
+            }
+            final int cell = ws.index(l, s, nt);
+            final int ruleIndex = ws.backRule[cell];
+            if (ruleIndex == NO_RULE) throw new UnparsableException();
+            final Rule rule = rulesByIndex[ruleIndex];
+            if (derivation != null) derivation.accept(ruleIndex);
+            if (top + 6 > stack.length) stack = Arrays.copyOf(stack, 2 * stack.length);
+            if (ruleIndex < type2Offset) {
+                // A -> B C, B is expanded first
+                final int p = ws.backSplit[cell];
+                final Type1RuleIndices ruleIndices = type1RuleIndices[ruleIndex];
+                stack[top++] = l - p;
+                stack[top++] = s + p;
+                stack[top++] = ruleIndices.rhs2;
+                stack[top++] = p;
+                stack[top++] = s;
+                stack[top++] = ruleIndices.rhs1;
+            } else if (ruleIndex < type3Offset) {
+                // A -> a
+                if (generated != null) generated.add((Terminal<T>) rule.right[0]);
+            } else if (ruleIndex < type4Offset) {
+                // A -> (B)
+                if (generated != null) {
+                    generated.add((Terminal<T>) rule.right[0]);
+                    stack[top++] = 0;
+                    stack[top++] = ruleIndex;
+                    stack[top++] = 0;
+                }
+                stack[top++] = l - 2;
+                stack[top++] = s + 1;
+                stack[top++] = integerNonTerminalMap.get(rule.right[1]);
+            } else {
+                // A -> B
+                stack[top++] = l;
+                stack[top++] = s;
+                stack[top++] = integerNonTerminalMap.get(rule.right[0]);
+            }
         }
     }
 
     @Override
     public double logProbabilityOf(final List<Terminal<T>> word) {
+        return logProbabilityOf(word.size(), terminalIdsOf(word));
+    }
+
+    /** {@link #logProbabilityOf(List)} for an encoded word */
+    public double logProbabilityOf(final EncodedWord<T> word) {
+        return logProbabilityOf(word.length(), terminalIdsOf(word));
+    }
+
+    private double logProbabilityOf(final int n, final int[] terminalIds) {
         if (ruleProbModel == null)
             throw new UnsupportedOperationException("No rule probability model provided.");
-        int n = word.size();
-        fillTable(word);
-        return logProb[n][1][integerNonTerminalMap.get(grammar.getStartSymbol())];
+        fillTable(n, terminalIds);
+        return workspace.logProb[workspace.index(n, 1, integerNonTerminalMap.get(grammar.getStartSymbol()))];
     }
 
 
-    private void fillTableIgnoreProbs(final List<Terminal<T>> word) {
-        fillTable(word);
+    private void fillTableIgnoreProbs(final int n, final int[] terminalIds) {
+        fillTable(n, terminalIds);
     }
 
+    /** Fills the Viterbi tables for the word of length n with the given terminal ids. */
     @SuppressWarnings("SuspiciousMethodCalls")
-    private void fillTable(final List<Terminal<T>> word) {
-        int n = word.size();
-
-        int noOfNonTerminals = grammar.getNonTerminals().size();
-		/*we create a 3-d boolean array of dimension nxnxr, n is the length of
-		the word and r is the number of nonterminals and the index of
-		r corresponds to the map in integerTerminalMap
+    private void fillTable(final int n, final int[] terminalIds) {
+		/* the workspace holds flat triangular tables of the spans of the word times r,
+		r is the number of nonterminals and the index of
+		r corresponds to the map in integerTerminalMap;
+		right children are read from the end-major copies, see SRFWorkspace
 		 */
-        booleanArray = new boolean[n + 1][n + 1][noOfNonTerminals + 1];//
-        logProb = new double[n + 1][n + 1][noOfNonTerminals + 1];//
-        backRule = new Rule[n + 1][n + 1][noOfNonTerminals + 1];
-        backSplit = new int[n + 1][n + 1][noOfNonTerminals + 1];
-        //initialise back and booleanArray
-        for (int i = 1; i <= n; i++) {//we ignore indexes with 0
-            for (int j = 1; j <= n; j++) {
-                for (int k = 1; k < noOfNonTerminals + 1; k++) {
-                    booleanArray[i][j][k] = false;
-                    backRule[i][j][k] = null;
-                    backSplit[i][j][k] = INVALID_SPLIT;
-                    logProb[i][j][k] = Double.NEGATIVE_INFINITY; // log(0)
-                }
-            }
-        }
+        final SRFWorkspace ws = workspace;
+        ws.prepare(n);
+        final boolean[] booleanArray = ws.derivable;
+        final double[] logProb = ws.logProb;
+        final int[] backRule = ws.backRule;
+        final int[] backSplit = ws.backSplit;
+        ws.computeBrackets(n, terminalIds, bracketOfTerminal);
 
         //fills out the table for substrings of length 1
         for (int s = 1; s < n + 1; s++) {
-            for (Rule rule : type2Rules) {
-                if (rule.right[0].equals(word.get(s - 1))) {
-                    int nt = integerNonTerminalMap.get(rule.left);
-                    booleanArray[1][s][nt] = true;
-                    // here we assume that there are no two identical rules A->a
-                    logProb[1][s][nt] = ruleProbModel.getIntervalFor(rule).getLnLength();
-                    backRule[1][s][nt] = rule;
-                    backSplit[1][s][nt] = INVALID_SPLIT; // A->a
-                }
+            if (terminalIds[s - 1] == NO_TERMINAL) continue;
+            for (int i : type2ByTerminal[terminalIds[s - 1]]) {
+                Rule rule = type2Rules.get(i);
+                int cell = ws.index(1, s, integerNonTerminalMap.get(rule.left));
+                booleanArray[cell] = true;
+                // here we assume that there are no two identical rules A->a
+                logProb[cell] = lnProbByRuleIndex == null ? 0 : lnProbByRuleIndex[type2Offset + i];
+                backRule[cell] = type2Offset + i;
+                backSplit[cell] = INVALID_SPLIT; // A->a
             }
         }
 
-        for (int l = 1; l <= n; l++) {//l is the span
-            for (int s = 1; s <= n - l + 1; s++) {//s is the start of span
-                for (int p = 1; p < l; p++) {//p is the partitions of the span
-                    /*
-                     * type1Rules
-                     */
-                    // Replaced by cached indices for performance
-//                    for (Rule rule : type1Rules) {
-//                        int a = integerNonTerminalMap.get(rule.left);
-//                        int b = integerNonTerminalMap.get(rule.right[0]);
-//                        int c = integerNonTerminalMap.get(rule.right[1]);
-                    for (Type1RuleIndices ruleIndices : type1RuleIndices) {
-                        int a = ruleIndices.lhs;
-                        int b = ruleIndices.rhs1;
-                        int c = ruleIndices.rhs2;
-                        Rule rule = ruleIndices.rule;
-                        if (booleanArray[p][s][b] && booleanArray[l - p][s + p][c]) {
-                            //System.out.println("Entered the innermost loop");
-                            booleanArray[l][s][a] = true;
-                            double prob = ruleProbModel.getIntervalFor(rule).getLnLength()
-                                    + logProb[p][s][b] + logProb[l - p][s + p][c];
-                            if (prob > logProb[l][s][a]) {
-                                backRule[l][s][a] = rule;
-                                backSplit[l][s][a] = p;
-                                logProb[l][s][a] = prob;
-                            }
+        if (lnProbByRuleIndex == null) {
+            fillSpansFirstDerivation(n, terminalIds);
+        } else {
+            fillSpansMostLikely(n, terminalIds);
+        }
+    }
 
-                        }
-                    }
-                }//close partitions
-
-                /*
-                 * type3Rules Ai->(Aj)
-                 */
-                if (l >= 2) {
-                    for (Rule rule : type3Rules) {
-                        int a = integerNonTerminalMap.get(rule.left);
-                        int b = integerNonTerminalMap.get(rule.right[1]);// only one non-terminal is found on the right of type 3 rules
-                        if (booleanArray[l - 2][s + 1][b]
-                                && rule.right[0].equals(word.get(s - 1)) // checks for opening and closing parenthesis
-                                && rule.right[2].equals(word.get(s + l - 2))) {
-                            booleanArray[l][s][a] = true;                                                                                     // the substring between the parenthesis
-                            //there's only one partition for type3 rules so p=1
-                            int p = 1;
-                            double prob = ruleProbModel.getIntervalFor(rule).getLnLength()
-                                    + logProb[l - 2][s + 1][b];
-                            if (prob > logProb[l][s][a]) {
-                                backRule[l][s][a] = rule;
-                                backSplit[l][s][a] = p;
-                                logProb[l][s][a] = prob;
-                            }
+    /** Fills one balanced span (l, s); spans of the same length can be filled concurrently. */
+    @FunctionalInterface
+    private interface CellFiller {
+        void fill(int l, int s);
+    }
+
+    /**
+     * Calls filler for all balanced spans of a word of length n, by increasing length
+     * (the "wavefront"); the spans of one length are filled in parallel if enabled.
+     */
+    private void fillSpans(final int n, final CellFiller filler) {
+        final ForkJoinPool pool = n >= parallelMinLength ? parallelFillPool : null;
+        for (int l = 1; l <= n; l++) {
+            final int starts = n - l + 1;
+            if (pool == null || starts <= PARALLEL_CHUNK) {
+                fillSpans(l, 1, starts + 1, filler);
+            } else {
+                pool.invoke(new SpanChunk(l, 1, starts + 1, filler));
+            }
+        }
+    }
+
+    /** Calls filler for all balanced spans of length l with start in [from, to). */
+    private void fillSpans(final int l, final int from, final int to, final CellFiller filler) {
+        for (int s = from; s < to; s++) {//s is the start of span
+            if (workspace.balanced(l, s)) filler.fill(l, s); // else not derivable
+        }
+    }
 
+    /** Parallel fill of the spans of length l with start in [from, to). */
+    private final class SpanChunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int l, from, to;
+        private final CellFiller filler;
+
+        SpanChunk(final int l, final int from, final int to, final CellFiller filler) {
+            this.l = l;
+            this.from = from;
+            this.to = to;
+            this.filler = filler;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_CHUNK) {
+                fillSpans(l, from, to, filler);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SpanChunk(l, from, mid, filler), new SpanChunk(l, mid, to, filler));
+            }
+        }
+    }
+
+    /**
+     * Viterbi fill of all spans with the rule probabilities in {@link #lnProbByRuleIndex};
+     * requires the spans of length 1 to be initialized with type 2 rules.
+     */
+    private void fillSpansMostLikely(final int n, final int[] terminalIds) {
+        fillSpans(n, (l, s) -> fillCellMostLikely(l, s, terminalIds));
+    }
+
+    /** Viterbi fill of the balanced span (l, s), see {@link #fillSpansMostLikely}. */
+    @SuppressWarnings("SuspiciousMethodCalls")
+    private void fillCellMostLikely(final int l, final int s, final int[] terminalIds) {
+        final SRFWorkspace ws = workspace;
+        final boolean[] booleanArray = ws.derivable;
+        final boolean[] booleanArrayByEnd = ws.derivableByEnd;
+        final double[] logProb = ws.logProb;
+        final double[] logProbByEnd = ws.logProbByEnd;
+        final int[] backRule = ws.backRule;
+        final int[] backSplit = ws.backSplit;
+        final long[] derivableBits = ws.derivableBits;
+        final int bitWords = ws.bitWords;
+        final double[] lnProb = lnProbByRuleIndex;
+
+        final int cell = ws.index(l, s, 0);
+        for (int p = ws.nextSplit(s, 0); p < l; p = ws.nextSplit(s, p)) {//p is the partitions of the span into balanced parts
+            final int left = ws.index(p, s, 0);
+            final int right = ws.endIndex(l - p, s + p, 0);
+            final int leftBits = ws.bitsIndex(p, s);
+            /*
+             * type1Rules, only those whose B is derivable from the left part
+             */
+            for (int w = 0; w < bitWords; w++) {
+                for (long bits = derivableBits[leftBits + w]; bits != 0L; bits &= bits - 1) {
+                    final int rhs1 = w * Long.SIZE + Long.numberOfTrailingZeros(bits) + 1;
+                    final int b = left + rhs1;
+                    for (int j = type1ByLeftStart[rhs1]; j < type1ByLeftStart[rhs1 + 1]; j++) {
+                        Type1RuleIndices ruleIndices = type1ByLeft[j];
+                        int c = right + ruleIndices.rhs2;
+                        if (booleanArrayByEnd[c]) {
+                            int a = cell + ruleIndices.lhs;
+                            int k = ruleIndices.ruleIndex;
+                            booleanArray[a] = true;
+                            double prob = lnProb[k] + logProb[b] + logProbByEnd[c];
+                            // on ties within a split, prefer the rule that comes first in type1Rules
+                            if (prob > logProb[a] || prob == logProb[a] && backSplit[a] == p && k < backRule[a]) {
+                                backRule[a] = k;
+                                backSplit[a] = p;
+                                logProb[a] = prob;
+                            }
                         }
                     }
                 }
+            }
+        }//close partitions
+
+        /*
+         * type3Rules Ai->(Aj), the substring between the parentheses is never empty
+         */
+        final int[] type3 = type3RulesFor(l, s, terminalIds);
+        if (type3 != null) {
+            final int inner = ws.index(l - 2, s + 1, 0);
+            for (int i : type3) { // the opening and closing parenthesis match
+                Rule rule = type3Rules.get(i);
+                int a = cell + integerNonTerminalMap.get(rule.left);
+                int b = inner + integerNonTerminalMap.get(rule.right[1]);// only one non-terminal is found on the right of type 3 rules
+                if (booleanArray[b]) {
+                    booleanArray[a] = true;                                                                                     // the substring between the parenthesis
+                    //there's only one partition for type3 rules so p=1
+                    int p = 1;
+                    double prob = lnProb[type3Offset + i] + logProb[b];
+                    if (prob > logProb[a]) {
+                        backRule[a] = type3Offset + i;
+                        backSplit[a] = p;
+                        logProb[a] = prob;
+                    }
 
-                /*
-                 * type4Rules
-                 */
-                for (Rule rule : type4Rules) {
-                    int a = integerNonTerminalMap.get(rule.left);
-                    int b = integerNonTerminalMap.get(rule.right[0]);//only one non-terminal is found on the right of type 4 rules
-                    if (booleanArray[l][s][b]) {//for rules Ai -> Aj checks if j<i
-                        booleanArray[l][s][a] = true;
-                        //there's only one partition for type3 rules so p=1
-                        int p=1;
-                        double prob = ruleProbModel.getIntervalFor(rule).getLnLength()
-                                + logProb[l][s][b] ;
-                        if (prob > logProb[l][s][a]) {
-                            backRule[l][s][a] = rule;
-                            backSplit[l][s][a] = p;
-                            logProb[l][s][a] = prob;
-                        }
+                }
+            }
+        }
+
+        /*
+         * type4Rules
+         */
+        for (int i = 0; i < type4Rules.size(); i++) {
+            Rule rule = type4Rules.get(i);
+            int a = cell + integerNonTerminalMap.get(rule.left);
+            int b = cell + integerNonTerminalMap.get(rule.right[0]);//only one non-terminal is found on the right of type 4 rules
+            if (booleanArray[b]) {//for rules Ai -> Aj checks if j<i
+                booleanArray[a] = true;
+                //there's only one partition for type3 rules so p=1
+                int p=1;
+                double prob = lnProb[type4Offset + i] + logProb[b];
+                if (prob > logProb[a]) {
+                    backRule[a] = type4Offset + i;
+                    backSplit[a] = p;
+                    logProb[a] = prob;
+                }
+
+            }
+        }
+
+        ws.complete(l, s, true);
+    }
+
+    /**
+     * Fill of all spans when every rule has probability 1 ({@link RuleProbModel#DONT_CARE}):
+     * all derivations are equally likely, so the first derivation found for a cell is kept,
+     * exactly as {@link #fillSpansMostLikely} would do with all log-probabilities 0.
+     * Requires the spans of length 1 to be initialized with type 2 rules.
+     */
+    private void fillSpansFirstDerivation(final int n, final int[] terminalIds) {
+        fillSpans(n, (l, s) -> fillCellFirstDerivation(l, s, terminalIds));
+    }
 
+    /** Fill of the balanced span (l, s), see {@link #fillSpansFirstDerivation}. */
+    @SuppressWarnings("SuspiciousMethodCalls")
+    private void fillCellFirstDerivation(final int l, final int s, final int[] terminalIds) {
+        final SRFWorkspace ws = workspace;
+        final boolean[] booleanArray = ws.derivable;
+        final boolean[] booleanArrayByEnd = ws.derivableByEnd;
+        final double[] logProb = ws.logProb;
+        final int[] backRule = ws.backRule;
+        final int[] backSplit = ws.backSplit;
+        final long[] derivableBits = ws.derivableBits;
+        final int bitWords = ws.bitWords;
+
+        final int cell = ws.index(l, s, 0);
+        for (int p = ws.nextSplit(s, 0); p < l; p = ws.nextSplit(s, p)) {//p is the partitions of the span into balanced parts
+            final int right = ws.endIndex(l - p, s + p, 0);
+            final int leftBits = ws.bitsIndex(p, s);
+            // only the type 1 rules whose B is derivable from the left part
+            for (int w = 0; w < bitWords; w++) {
+                for (long bits = derivableBits[leftBits + w]; bits != 0L; bits &= bits - 1) {
+                    final int rhs1 = w * Long.SIZE + Long.numberOfTrailingZeros(bits) + 1;
+                    for (int j = type1ByLeftStart[rhs1]; j < type1ByLeftStart[rhs1 + 1]; j++) {
+                        Type1RuleIndices ruleIndices = type1ByLeft[j];
+                        int a = cell + ruleIndices.lhs;
+                        int k = ruleIndices.ruleIndex;
+                        // within a split, the rule that comes first in type1Rules wins
+                        if ((!booleanArray[a] || backSplit[a] == p && k < backRule[a])
+                                && booleanArrayByEnd[right + ruleIndices.rhs2]) {
+                            booleanArray[a] = true;
+                            logProb[a] = 0; // log(1)
+                            backRule[a] = k;
+                            backSplit[a] = p;
+                        }
                     }
                 }
+            }
+        }//close partitions
+
+        // type3Rules Ai->(Aj), the substring between the parentheses is never empty
+        final int[] type3 = type3RulesFor(l, s, terminalIds);
+        if (type3 != null) {
+            final int inner = ws.index(l - 2, s + 1, 0);
+            for (int i : type3) {
+                Rule rule = type3Rules.get(i);
+                int a = cell + integerNonTerminalMap.get(rule.left);
+                if (!booleanArray[a] && booleanArray[inner + integerNonTerminalMap.get(rule.right[1])]) {
+                    booleanArray[a] = true;
+                    logProb[a] = 0;
+                    backRule[a] = type3Offset + i;
+                    backSplit[a] = 1;
+                }
+            }
+        }
+
+        // type4Rules
+        for (int i = 0; i < type4Rules.size(); i++) {
+            Rule rule = type4Rules.get(i);
+            int a = cell + integerNonTerminalMap.get(rule.left);
+            if (!booleanArray[a] && booleanArray[cell + integerNonTerminalMap.get(rule.right[0])]) {
+                booleanArray[a] = true;
+                logProb[a] = 0;
+                backRule[a] = type4Offset + i;
+                backSplit[a] = 1;
+            }
+        }
+
+        ws.complete(l, s, false);
+    }
+
+    /**
+     * @return the positions in {@link #type3Rules} of the rules whose parentheses match the ends of
+     * span (l, s), or {@code null} if there are none (in particular if l < 3, since the substring
+     * between the parentheses is never empty)
+     */
+    private int[] type3RulesFor(final int l, final int s, final int[] terminalIds) {
+        if (l < 3) return null;
+        final int open = terminalIds[s - 1], close = terminalIds[s + l - 2];
+        if (open == NO_TERMINAL || close == NO_TERMINAL) return null;
+        final int[] res = type3ByTerminals[open * terminals.size() + close];
+        return res.length == 0 ? null : res;
+    }
+
+    /**
+     * Recognition-only CYK: fills the chart of nonterminal bitmasks without any
+     * probabilities or back pointers.
+     *
+     * @return whether the start symbol derives the word of length n with the given terminal ids
+     */
+    private boolean recognize(final int n, final int[] terminalIds) {
+        final SRFWorkspace ws = workspace;
+        ws.prepareMasks(n);
+        final long[] masks = ws.masks;
+        final long[] masksByEnd = ws.masksByEnd;
+        ws.computeBrackets(n, terminalIds, bracketOfTerminal);
 
+        //fills out the table for substrings of length 1
+        for (int s = 1; s <= n; s++) {
+            long mask = 0L;
+            if (terminalIds[s - 1] != NO_TERMINAL) {
+                for (int i : type2ByTerminal[terminalIds[s - 1]]) mask |= type2LhsBit[i];
+            }
+            masks[ws.maskIndex(1, s)] = mask;
+            masksByEnd[ws.maskEndIndex(1, s)] = mask;
+        }
 
-            }//close span start
-        }//close span
+        fillSpans(n, (l, s) -> recognizeCell(l, s, terminalIds));
+        // start symbol has index 1
+        return n > 0 && (masks[ws.maskIndex(n, 1)] & bitOf(1)) != 0L;
+    }
 
+    /** Recognition of the balanced span (l, s), see {@link #recognize}. */
+    private void recognizeCell(final int l, final int s, final int[] terminalIds) {
+        final SRFWorkspace ws = workspace;
+        final long[] masks = ws.masks;
+        final long[] masksByEnd = ws.masksByEnd;
+        final int cell = ws.maskIndex(l, s);
+        long mask = masks[cell];
+        // type1Rules, splits into balanced parts only
+        for (int p = ws.nextSplit(s, 0); p < l; p = ws.nextSplit(s, p)) {
+            final long left = masks[ws.maskIndex(p, s)];
+            if (left == 0L) continue;
+            final long right = masksByEnd[ws.maskEndIndex(l - p, s + p)];
+            if (right == 0L) continue;
+            // only the groups whose B is in the left cell
+            for (long bits = left; bits != 0L; bits &= bits - 1) {
+                final int b = Long.numberOfTrailingZeros(bits) + 1;
+                for (int k = type1GroupStart[b]; k < type1GroupStart[b + 1]; k++) {
+                    if ((right & type1RightMask[k]) != 0L) mask |= type1LhsBit[k];
+                }
+            }
+        }
+        // type3Rules Ai->(Aj), the substring between the parentheses is never empty
+        final int[] type3 = type3RulesFor(l, s, terminalIds);
+        if (type3 != null) {
+            final long inner = masks[ws.maskIndex(l - 2, s + 1)];
+            for (int i : type3) {
+                if ((inner & type3InnerBit[i]) != 0L) mask |= type3LhsBit[i];
+            }
+        }
+        // type4Rules, in order of their lhs so that chains are closed in one pass
+        for (int i = 0; i < type4LhsBit.length; i++) {
+            if ((mask & type4RhsBit[i]) != 0L) mask |= type4LhsBit[i];
+        }
+        masks[cell] = mask;
+        masksByEnd[ws.maskEndIndex(l, s)] = mask;
     }
 
     private void computeNonterminalToIndicesMap() {
@@ -389,15 +951,16 @@ public class SRFParser<T> implements StochasticParser<T> {
         }
     }
 
-    public void displayBackTracingTable(Rule[][][] backtrace) {
+    public void displayBackTracingTable(final int n) {
         System.out.println("The contents of the CYK-backtracing table are: ");
 
-        for (int i = 1; i < backtrace.length; i++) {
-            for (int j = 1; j < backtrace[0].length; j++) {
-                for (int k = 1; k < backtrace[0][0].length; k++) {
-                    if (backtrace[i][j][k] != null) {
+        for (int i = 1; i <= n; i++) {
+            for (int j = 1; j <= n - i + 1; j++) {
+                for (int k = 1; k <= grammar.getNonTerminals().size(); k++) {
+                    int ruleIndex = workspace.backRule[workspace.index(i, j, k)];
+                    if (ruleIndex != NO_RULE) {
                         //printing the rule
-                        System.out.print(backtrace[i][j][k] + "\t\n");
+                        System.out.print(rulesByIndex[ruleIndex] + "\t\n");
                     }
 
                 }
@@ -407,13 +970,13 @@ public class SRFParser<T> implements StochasticParser<T> {
         }
     }
 
-    public void displayBooleanArray() {
+    public void displayBooleanArray(final int n) {
         System.out.println("The contents of the boolean-array is: ");
-        for (int i = 1; i < booleanArray.length; i++) {
-            for (int j = 1; j < booleanArray[0].length; j++) {
-                for (int k = 1; k < booleanArray[0][0].length; k++) {
+        for (int i = 1; i <= n; i++) {
+            for (int j = 1; j <= n - i + 1; j++) {
+                for (int k = 1; k <= grammar.getNonTerminals().size(); k++) {
 
-                    System.out.print(i+"-"+j+"-"+k+"-"+ booleanArray[i][j][k] + "\t");
+                    System.out.print(i+"-"+j+"-"+k+"-"+ workspace.derivable[workspace.index(i, j, k)] + "\t");
                 }
                 System.out.println();
             }
@@ -424,17 +987,19 @@ public class SRFParser<T> implements StochasticParser<T> {
 
     private static final class Type1RuleIndices {
 
-        public Type1RuleIndices(final int lhs, final int rhs1, final int rhs2, final Rule rule) {
+        public Type1RuleIndices(final int lhs, final int rhs1, final int rhs2, final Rule rule, final int ruleIndex) {
             this.lhs = lhs;
             this.rhs1 = rhs1;
             this.rhs2 = rhs2;
             this.rule = rule;
+            this.ruleIndex = ruleIndex;
         }
 
         final int lhs;
         final int rhs1;
         final int rhs2;
         final Rule rule;
+        final int ruleIndex;
 
     }
 
@@ -0,0 +1,82 @@
+package compression.parser;
+
+import compression.data.CachedDataset;
+import compression.data.FolderBasedDataset;
+import compression.grammar.EncodedWord;
+import compression.grammar.PairOfChar;
+import compression.grammar.RNAGrammar;
+import compression.grammar.RNAWithStructure;
+import compression.grammargenerator.UnparsableException;
+import compression.util.AllGrammars;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Micro benchmark for {@link SRFParser} on the longest RNAs of a dataset.
+ * <p>
+ * Reports wall time and allocated bytes per word for recognition ({@link SRFParser#parsable})
+ * and for the Viterbi fill plus backtrace ({@link SRFParser#leftmostDerivationFor}).
+ * Hardware cache misses are best measured by running this class under
+ * {@code perf stat -e cache-references,cache-misses}.
+ */
+public class SRFParserBenchmark {
+
+	public static void main(String[] args) throws UnparsableException {
+		if (args.length > 0 && (args[0].equals("-h") || args[0].equals("--help"))) {
+			System.out.println("Usage: SRFParserBenchmark [dataset] [nLongest] [grammar] [rounds] [threads]");
+			System.out.println("\t defaults: friemel-modified 5 G6B 3 0");
+			System.out.println("\t threads > 0 fills the DP tables in parallel with that many threads");
+			System.out.println("\t grammar is one of " + AllGrammars.allGrammarNames());
+			System.exit(1);
+		}
+		String datasetName = args.length > 0 ? args[0] : "friemel-modified";
+		int nLongest = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		String grammarName = args.length > 2 ? args[2] : "G6B";
+		int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+		int threads = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+
+		CachedDataset dataset = new CachedDataset(new FolderBasedDataset(datasetName),
+				Comparator.comparingInt(RNAWithStructure::getNumberOfBases).reversed());
+		List<EncodedWord<PairOfChar>> words = new ArrayList<>();
+		for (RNAWithStructure rna : dataset.getRNAs().subList(0, Math.min(nLongest, dataset.getSize()))) {
+			words.add(rna.encoded());
+		}
+		RNAGrammar grammar = AllGrammars.allGrammars(true).get(grammarName).getGrammar();
+		System.out.println("dataset = " + dataset);
+		System.out.println("grammar = " + grammarName + " (" + grammar.getNonTerminals().size() + " nonterminals, "
+				+ grammar.size() + " rules)");
+		System.out.println("word lengths = " + words.stream().map(EncodedWord::length).toList());
+
+		SRFParser<PairOfChar> parser = new SRFParser<>(grammar);
+		if (threads > 0) parser.setParallelFill(new ForkJoinPool(threads), 1);
+		System.out.println("threads = " + threads);
+		for (int round = 1; round <= rounds; round++) {
+			long bytes = allocatedBytes(), start = System.nanoTime();
+			for (EncodedWord<PairOfChar> word : words) {
+				if (!parser.parsable(word)) throw new UnparsableException();
+			}
+			report("round " + round + " parsable", words.size(), start, bytes);
+
+			bytes = allocatedBytes();
+			start = System.nanoTime();
+			for (EncodedWord<PairOfChar> word : words) {
+				parser.leftmostDerivationFor(word);
+			}
+			report("round " + round + " leftmostDerivationFor", words.size(), start, bytes);
+		}
+	}
+
+	private static void report(String label, int nWords, long startNanos, long startBytes) {
+		double millis = (System.nanoTime() - startNanos) / 1e6;
+		double megaBytes = (allocatedBytes() - startBytes) / 1e6;
+		System.out.printf("%-34s %10.1f ms/word %10.1f MB/word%n", label, millis / nWords, megaBytes / nWords);
+	}
+
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+	}
+}
@@ -0,0 +1,274 @@
+package compression.parser;
+
+import compression.grammar.EncodedWord;
+
+import java.util.Arrays;
+
+/**
+ * Dynamic-programming tables of an {@link SRFParser}, stored as flat primitive arrays.
+ * <p>
+ * The tables are allocated once per parser and only reallocated (geometrically grown) when a
+ * word longer than any word seen so far is parsed. Between words, only the cells that earlier
+ * words have touched are reset.
+ * <p>
+ * Only the cells {@code (l, s)} (span length, span start; both 1-based as in the parser) with
+ * {@code s + l - 1 <= n} exist; they are packed into a triangle of {@code n(n+1)/2} cells,
+ * laid out for the current word length {@code n}, with the slots of all nonterminals of a cell
+ * next to each other. The triangle is stored twice:
+ * <ul>
+ *     <li>start-major ({@link #index(int, int, int)}): all spans with the same start are
+ *     consecutive, ordered by length, so the left parts {@code (p, s)} of the splits of a span
+ *     are visited sequentially for {@code p = 1, 2, ...};</li>
+ *     <li>end-major ({@link #endIndex(int, int, int)}): all spans with the same end are
+ *     consecutive, ordered by length, so the right parts {@code (l - p, s + p)} are visited
+ *     sequentially as well.</li>
+ * </ul>
+ * Back pointers are only needed for backtracing and are stored start-major only.
+ * <p>
+ * There are two independent sets of tables: the Viterbi tables (derivable flags,
+ * log-probabilities and back pointers) and the recognition chart, which stores one
+ * {@code long} bitmask over nonterminals per cell (see {@link #maskIndex(int, int)}).
+ * Each set is only allocated once it is used, so parsers that are only asked for
+ * parsability never allocate the Viterbi tables.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class SRFWorkspace {
+
+    /** Smallest capacity ever allocated, so that short words do not trigger many reallocations. */
+    private static final int MIN_CAPACITY = 16;
+
+    /** Number of slots per cell, i.e., number of nonterminals + 1 (index 0 is unused). */
+    final int stride;
+
+    /** Number of {@code long}s per cell in {@link #derivableBits}. */
+    final int bitWords;
+
+    /** {@code rowStart[s]} is the start-major position of cell {@code (1, s)} for the current word */
+    private int[] rowStart = new int[0];
+
+    /** Longest word the current Viterbi tables can hold. */
+    private int capacity = -1;
+
+    /** Viterbi cells at or after this position are known to be in their initial state. */
+    private int dirtyCells;
+
+    /** Longest word the current recognition chart can hold. */
+    private int maskCapacity = -1;
+
+    /** Recognition cells at or after this position are known to be empty. */
+    private int maskDirtyCells;
+
+    boolean[] derivable, derivableByEnd;
+    double[] logProb, logProbByEnd;
+    /** back pointers: index of the rule (see {@link SRFParser#NO_RULE}) and split point */
+    int[] backRule, backSplit;
+    /**
+     * The derivable flags of each cell as a bitset (bit {@code nt - 1} for nonterminal {@code nt}),
+     * start-major; only valid for cells that have been completed for the current word,
+     * so it never needs to be reset
+     */
+    long[] derivableBits;
+
+    /**
+     * Recognition chart, start-major and end-major;
+     * bit {@code nt - 1} of a cell is set iff nonterminal {@code nt} derives the span
+     */
+    long[] masks, masksByEnd;
+
+    /** Terminal ids of the letters of the current word, see {@link #terminalIds(int)}. */
+    private int[] terminalIds = new int[0];
+    /** terminal ids of the symbols of an {@link EncodedWord}'s alphabet */
+    final int[] terminalIdOfSymbol = new int[EncodedWord.MAX_ALPHABET_SIZE];
+
+    /**
+     * Bracket structure of the current word at the positions 0, ..., n between its letters
+     * (see {@link #balanced(int, int)}): the bracket depth after each position, the first
+     * later position with smaller depth and the first later position with the same depth
+     * before that ({@code n + 1} if none).
+     */
+    private int[] depth = new int[0], drop = new int[0], next = new int[0];
+    /** scratch space for computing the bracket structure, indexed by depth + n + 1 */
+    private int[] firstAtDepth = new int[0];
+
+    SRFWorkspace(final int noOfNonTerminals) {
+        this.stride = noOfNonTerminals + 1;
+        this.bitWords = Math.max(1, (noOfNonTerminals + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    /**
+     * Makes the Viterbi tables ready for a word of length {@code n}: all cells are in their
+     * initial state ("not derivable") afterwards.
+     */
+    void prepare(final int n) {
+        layout(n);
+        int size = cells(n) * stride;
+        if (n > capacity) {
+            capacity = grownCapacity(capacity, n);
+            int allocated = Math.multiplyExact(cells(capacity), stride);
+            derivable = new boolean[allocated];
+            derivableByEnd = new boolean[allocated];
+            logProb = new double[allocated];
+            logProbByEnd = new double[allocated];
+            backRule = new int[allocated];
+            backSplit = new int[allocated];
+            derivableBits = new long[Math.multiplyExact(cells(capacity), bitWords)];
+            // fresh arrays are zeroed, which is not the initial state of logProb and the back pointers
+            dirtyCells = allocated;
+        }
+        int dirty = Math.min(size, dirtyCells);
+        Arrays.fill(derivable, 0, dirty, false);
+        Arrays.fill(derivableByEnd, 0, dirty, false);
+        Arrays.fill(logProb, 0, dirty, Double.NEGATIVE_INFINITY); // log(0)
+        Arrays.fill(logProbByEnd, 0, dirty, Double.NEGATIVE_INFINITY);
+        Arrays.fill(backRule, 0, dirty, SRFParser.NO_RULE);
+        Arrays.fill(backSplit, 0, dirty, SRFParser.INVALID_SPLIT);
+        dirtyCells = Math.max(dirtyCells, size);
+    }
+
+    /**
+     * Makes the recognition chart ready for a word of length {@code n}: all cells are empty
+     * afterwards.
+     */
+    void prepareMasks(final int n) {
+        layout(n);
+        int cells = cells(n);
+        if (n > maskCapacity) {
+            maskCapacity = grownCapacity(maskCapacity, n);
+            masks = new long[cells(maskCapacity)];
+            masksByEnd = new long[cells(maskCapacity)];
+            maskDirtyCells = 0;
+        }
+        int dirty = Math.min(cells, maskDirtyCells);
+        Arrays.fill(masks, 0, dirty, 0L);
+        Arrays.fill(masksByEnd, 0, dirty, 0L);
+        maskDirtyCells = Math.max(maskDirtyCells, cells);
+    }
+
+    /**
+     * To be called once the Viterbi cell {@code (l, s)} is complete: copies it into the end-major
+     * tables for its use as a right part, and stores its bits in {@link #derivableBits} for its
+     * use as a left part.
+     *
+     * @param withLogProb whether the log-probabilities are mirrored, too
+     */
+    void complete(final int l, final int s, final boolean withLogProb) {
+        int cell = index(l, s, 0), cellByEnd = endIndex(l, s, 0);
+        System.arraycopy(derivable, cell, derivableByEnd, cellByEnd, stride);
+        if (withLogProb) System.arraycopy(logProb, cell, logProbByEnd, cellByEnd, stride);
+        int bits = bitsIndex(l, s);
+        Arrays.fill(derivableBits, bits, bits + bitWords, 0L);
+        for (int nt = 1; nt < stride; nt++) {
+            if (derivable[cell + nt]) derivableBits[bits + (nt - 1) / Long.SIZE] |= 1L << (nt - 1);
+        }
+    }
+
+    /**
+     * Computes the bracket structure of the word of length {@code n} with the given terminal ids
+     * for span pruning (see {@link #balanced}). Type 3 rules add a matching pair of brackets, all
+     * other rules none, so a span can only be derived if its brackets are balanced, and only
+     * splits into balanced parts can derive it.
+     *
+     * @param bracketOfTerminal +1 for opening, -1 for closing brackets, 0 for other terminal ids;
+     *                          if {@code null}, every span counts as balanced and no split is skipped
+     */
+    void computeBrackets(final int n, final int[] terminalIds, final int[] bracketOfTerminal) {
+        prepareBrackets(n);
+        depth[0] = 0;
+        for (int i = 1; i <= n; i++) {
+            int id = terminalIds[i - 1];
+            depth[i] = depth[i - 1] + (bracketOfTerminal == null || id == SRFParser.NO_TERMINAL ? 0 : bracketOfTerminal[id]);
+        }
+        // firstAtDepth[d + n + 1] is the first position after i with depth d (n + 1 if none)
+        Arrays.fill(firstAtDepth, 0, 2 * n + 2, n + 1);
+        for (int i = n; i >= 0; i--) {
+            int d = depth[i] + n + 1;
+            drop[i] = firstAtDepth[d - 1];
+            next[i] = firstAtDepth[d] < drop[i] ? firstAtDepth[d] : n + 1;
+            firstAtDepth[d] = i;
+        }
+    }
+
+    /** Makes the bracket structure arrays big enough for a word of length {@code n}. */
+    private void prepareBrackets(final int n) {
+        if (depth.length < n + 1) {
+            int size = grownCapacity(depth.length, n + 1);
+            depth = new int[size];
+            drop = new int[size];
+            next = new int[size];
+            firstAtDepth = new int[2 * size];
+        }
+    }
+
+    /**
+     * @return whether the brackets of span {@code (l, s)} of the current word are balanced,
+     * i.e., the span has the same depth at both ends and not less in between
+     */
+    boolean balanced(final int l, final int s) {
+        return depth[s - 1] == depth[s + l - 1] && s + l - 1 < drop[s - 1];
+    }
+
+    /**
+     * @return the length of the next balanced prefix of a balanced span starting at {@code s}
+     * after the balanced prefix of length {@code p} (0 for the first one); at least the length of
+     * the span if there is none
+     */
+    int nextSplit(final int s, final int p) {
+        return next[s - 1 + p] - (s - 1);
+    }
+
+    /** @return a buffer for the terminal ids of a word of length {@code n} */
+    int[] terminalIds(final int n) {
+        if (terminalIds.length < n) terminalIds = new int[grownCapacity(terminalIds.length, n)];
+        return terminalIds;
+    }
+
+    /** @return the start-major position of cell {@code (l, s, nt)} in the Viterbi tables */
+    int index(final int l, final int s, final int nt) {
+        return (rowStart[s] + l - 1) * stride + nt;
+    }
+
+    /** @return the position of the first word of cell {@code (l, s)} in {@link #derivableBits} */
+    int bitsIndex(final int l, final int s) {
+        return (rowStart[s] + l - 1) * bitWords;
+    }
+
+    /** @return the end-major position of cell {@code (l, s, nt)} in the Viterbi tables */
+    int endIndex(final int l, final int s, final int nt) {
+        return endCell(l, s) * stride + nt;
+    }
+
+    /** @return the start-major position of cell {@code (l, s)} in the recognition chart */
+    int maskIndex(final int l, final int s) {
+        return rowStart[s] + l - 1;
+    }
+
+    /** @return the end-major position of cell {@code (l, s)} in the recognition chart */
+    int maskEndIndex(final int l, final int s) {
+        return endCell(l, s);
+    }
+
+    private static int endCell(final int l, final int s) {
+        int e = s + l - 1;
+        return (int) ((long) e * (e - 1) / 2) + l - 1;
+    }
+
+    /** Computes the start-major row offsets for a word of length {@code n}. */
+    private void layout(final int n) {
+        if (rowStart.length < n + 2) rowStart = new int[grownCapacity(rowStart.length, n + 2)];
+        rowStart[1] = 0;
+        for (int s = 1; s <= n; s++) {
+            rowStart[s + 1] = rowStart[s] + (n - s + 1);
+        }
+    }
+
+    /** @return number of cells in the triangle for a word of length {@code n} */
+    private static int cells(final int n) {
+        return Math.toIntExact((long) n * (n + 1) / 2);
+    }
+
+    /** Capacity grows by at least half its current value to amortise reallocations. */
+    private static int grownCapacity(final int capacity, final int n) {
+        return Math.max(n, Math.max(MIN_CAPACITY, capacity + capacity / 2));
+    }
+}
@@ -4,7 +4,17 @@ import compression.grammar.Rule;
 import compression.grammar.Terminal;
 import compression.grammargenerator.UnparsableException;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 /**
  * @author Sebastian Wild (wild@liverpool.ac.uk)
@@ -20,4 +30,129 @@ public interface StochasticParser<T> extends Parser<T> {
 	/** @return ln(p) for p the probability of the most likely leftmost derivation for the given word */
 	double logProbabilityOf(List<Terminal<T>> word) throws UnparsableException;
 
+	/**
+	 * Computes the leftmost derivations of all words with this parser, shortest words first,
+	 * so that unparsable short words are found early and the parser's tables grow only
+	 * as needed.
+	 *
+	 * @return the leftmost derivations, in the order of words
+	 * @throws UnparsableException for the first word found that is not in the language of the
+	 *                             grammar; the remaining words are not parsed
+	 */
+	default List<List<Rule>> parseAll(final List<List<Terminal<T>>> words) throws UnparsableException {
+		List<List<Rule>> res = new ArrayList<>(words.size());
+		for (int i = 0; i < words.size(); i++) res.add(null);
+		for (int i : byLength(words)) {
+			res.set(i, leftmostDerivationFor(words.get(i), i));
+		}
+		return res;
+	}
+
+	/**
+	 * @return whether all words are parsable; stops at the first word that is not,
+	 * trying shorter words first
+	 */
+	default boolean parsableAll(final List<List<Terminal<T>>> words) {
+		for (int i : byLength(words)) {
+			if (!parsable(words.get(i))) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Like {@link #parseAll(List)}, but fans out over the threads of pool: each worker parses with
+	 * its own parser from parsers (so parsers need not be thread-safe) and takes the next
+	 * longest word not yet parsed, which balances the load. Once a word turns out not to be
+	 * parsable, no further words are started.
+	 *
+	 * @return the leftmost derivations, in the order of words
+	 * @throws UnparsableException for a word that is not in the language of the grammar
+	 */
+	static <T> List<List<Rule>> parseAll(final List<List<Terminal<T>>> words,
+	                                     final Supplier<? extends StochasticParser<T>> parsers,
+	                                     final ForkJoinPool pool) throws UnparsableException {
+		final List<List<Rule>> res = new ArrayList<>(Collections.nCopies(words.size(), null));
+		parseAll(words, parsers, pool, (derivation, i) -> res.set(i, derivation));
+		return res;
+	}
+
+	/**
+	 * Like {@link #parseAll(List, Supplier, ForkJoinPool)}, but hands each derivation to action
+	 * together with the position of its word as soon as it is found, instead of keeping all of them;
+	 * action is called by the workers of pool, so it must be thread-safe.
+	 *
+	 * @throws UnparsableException for a word that is not in the language of the grammar, see
+	 *                             {@link UnparsableException#getWordIndex()}
+	 */
+	static <T> void parseAll(final List<List<Terminal<T>>> words,
+	                         final Supplier<? extends StochasticParser<T>> parsers,
+	                         final ForkJoinPool pool, final ObjIntConsumer<List<Rule>> action) throws UnparsableException {
+		forEachDerivation(words, parsers, pool, Parser::leftmostDerivationFor, action);
+	}
+
+	/**
+	 * Like {@link #parseAll(List, Supplier, ForkJoinPool, ObjIntConsumer)}, but hands each derivation to
+	 * action as the {@link compression.grammar.Grammar#getRuleId(Rule) ids} of its rules.
+	 */
+	static <T> void parseAllRuleIds(final List<List<Terminal<T>>> words,
+	                                final Supplier<? extends StochasticParser<T>> parsers,
+	                                final ForkJoinPool pool, final ObjIntConsumer<int[]> action) throws UnparsableException {
+		forEachDerivation(words, parsers, pool, Parser::leftmostDerivationIdsFor, action);
+	}
+
+	/** the streaming {@link #parseAll}, with derivations computed by derive */
+	private static <T, D> void forEachDerivation(final List<List<Terminal<T>>> words,
+	                                             final Supplier<? extends StochasticParser<T>> parsers,
+	                                             final ForkJoinPool pool, final Derivation<T, D> derive,
+	                                             final ObjIntConsumer<D> action) throws UnparsableException {
+		final int[] order = byLength(words);
+		final AtomicInteger next = new AtomicInteger(order.length);
+		final AtomicReference<UnparsableException> failure = new AtomicReference<>();
+		final int workers = Math.min(pool.getParallelism(), words.size());
+		final List<ForkJoinTask<?>> tasks = new ArrayList<>(workers);
+		for (int w = 0; w < workers; w++) {
+			tasks.add(pool.submit(() -> {
+				final StochasticParser<T> parser = parsers.get();
+				int k;
+				while (failure.get() == null && (k = next.decrementAndGet()) >= 0) {
+					final List<Terminal<T>> word = words.get(order[k]);
+					try {
+						action.accept(derive.of(parser, word), order[k]);
+					} catch (UnparsableException e) {
+						failure.compareAndSet(null, atWord(e, word, order[k]));
+					}
+				}
+			}));
+		}
+		for (ForkJoinTask<?> task : tasks) task.join();
+		if (failure.get() != null) throw failure.get();
+	}
+
+	/** {@link #leftmostDerivationFor(List)} with the position of word in a batch for error messages */
+	private List<Rule> leftmostDerivationFor(final List<Terminal<T>> word, final int i) throws UnparsableException {
+		try {
+			return leftmostDerivationFor(word);
+		} catch (UnparsableException e) {
+			throw atWord(e, word, i);
+		}
+	}
+
+	/** @return e for word at position i of a batch */
+	private static <T> UnparsableException atWord(final UnparsableException e, final List<Terminal<T>> word, final int i) {
+		return new UnparsableException("word " + i + " (length " + word.size() + ") is not parsable", e, i);
+	}
+
+	/** A derivation of a word, e.g., {@link Parser#leftmostDerivationFor(List)}. */
+	@FunctionalInterface
+	interface Derivation<T, D> {
+		D of(StochasticParser<T> parser, List<Terminal<T>> word) throws UnparsableException;
+	}
+
+	/** @return the positions of words, sorted by the lengths of the words (stable) */
+	private static <T> int[] byLength(final List<List<Terminal<T>>> words) {
+		return IntStream.range(0, words.size()).boxed()
+				.sorted(Comparator.comparingInt(i -> words.get(i).size()))
+				.mapToInt(i -> i).toArray();
+	}
+
 }
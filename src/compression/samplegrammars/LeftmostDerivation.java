@@ -30,6 +30,20 @@ public class LeftmostDerivation {
         }
     }
 
+    /**
+     * Like {@link #rules(Parser, RNAWithStructure)}, but gives the rules by their
+     * {@link Grammar#getRuleId(Rule) ids} in the grammar of parser.
+     */
+    public static int[] ruleIds(Parser<PairOfChar> parser, RNAWithStructure RNA) {
+        List<Terminal<PairOfChar>> terminals = RNA.asTerminals();
+        try {
+            return parser.leftmostDerivationIdsFor(terminals);
+        } catch (UnparsableException e) {
+            throw new RuntimeException("In here, we assume grammars parse all RNAs, " +
+                    "but failed to parse " + RNA + " with grammar " + parser.getGrammar(), e);
+        }
+    }
+
     /**
      * Convenience method that creates a throw-away parser for the given grammar and model.
      */
@@ -37,5 +51,13 @@ public class LeftmostDerivation {
         return rules(new SRFParser<>(grammar, RuleProbModel.DONT_CARE), RNA);
     }
 
+    /**
+     * Like {@link #rules(RNAGrammar, RNAWithStructure)}, but gives the rules by their
+     * {@link Grammar#getRuleId(Rule) ids} in grammar.
+     */
+    public static int[] ruleIds(RNAGrammar grammar, RNAWithStructure RNA) {
+        return ruleIds(new SRFParser<>(grammar, RuleProbModel.DONT_CARE), RNA);
+    }
+
 
 }
@@ -7,14 +7,22 @@ package compression.samplegrammars;
 
 import compression.data.Dataset;
 import compression.grammar.RNAGrammar;
+import compression.grammar.PairOfChar;
+import compression.grammar.RNAWithStructure;
 import compression.grammar.Rule;
+import compression.grammar.Terminal;
+import compression.grammargenerator.UnparsableException;
+import compression.parser.SRFParser;
+import compression.parser.StochasticParser;
+import compression.samplegrammars.model.RuleProbModel;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.StreamSupport;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Compute the frequency of each rule in a grammar for a given dataset, starting with 1
@@ -23,35 +31,66 @@ import java.util.stream.StreamSupport;
  */
 public final class RuleCountsForGrammarLaPlace {
 
-	private final Map<Rule, Long> rulesToFrequency = new HashMap<>();
+	/** number of RNAs held in memory and parsed at once */
+	private static final int CHUNK_SIZE = 1024;
+
+	/** the frequency of each rule by {@link RNAGrammar#getRuleId(Rule) id} */
+	private final long[] frequencies;
 	private final RNAGrammar grammar;
 
 	public RuleCountsForGrammarLaPlace(RNAGrammar grammar, Dataset dataset) {
 		this.grammar = grammar;
+		this.frequencies = new long[grammar.size()];
 		initializeMap(this.grammar.getAllRules());
-		StreamSupport.stream(dataset.spliterator(), true).unordered().forEach((RNAWS) -> {
-			try {
-				List<Rule> rules = LeftmostDerivation.rules(this.grammar, RNAWS);
-				incrementMap(rules);
-			} catch (RuntimeException e) {
-				throw new RuntimeException(RNAWS.name + " HAS PARSING ISSUE with grammar: " + this.grammar, e);
+		List<List<Terminal<PairOfChar>>> words = new ArrayList<>(CHUNK_SIZE);
+		List<String> names = new ArrayList<>(CHUNK_SIZE);
+		int parsed = 0;
+		for (RNAWithStructure RNAWS : dataset) {
+			words.add(RNAWS.asTerminals());
+			names.add(RNAWS.name);
+			if (words.size() == CHUNK_SIZE) {
+				countRules(dataset, words, names, parsed);
+				parsed += words.size();
+				words.clear();
+				names.clear();
 			}
-		});
+		}
+		countRules(dataset, words, names, parsed);
+	}
+
+	/** counts the rules of the derivations of words, the RNAs of dataset from position offset on, as they are found */
+	private void countRules(final Dataset dataset, final List<List<Terminal<PairOfChar>>> words,
+							final List<String> names, final int offset) {
+		if (words.isEmpty()) return;
+		try {
+			// one parser per worker thread instead of one per RNA
+			StochasticParser.parseAllRuleIds(words, () -> new SRFParser<>(this.grammar, RuleProbModel.DONT_CARE),
+					ForkJoinPool.commonPool(), (derivation, i) -> incrementCounts(derivation));
+		} catch (UnparsableException e) {
+			int i = e.getWordIndex();
+			throw new RuntimeException(dataset.name() + " HAS PARSING ISSUE with grammar: " + this.grammar
+					+ (i < 0 ? "" : " at RNA " + (offset + i) + " (" + names.get(i) + ")"), e);
+		}
 	}
 
 	public synchronized void incrementMap(List<Rule> listOfRules) {
-		listOfRules.forEach((rule) -> {
-			rulesToFrequency.replace(rule, rulesToFrequency.get(rule) + 1);
-		});
+		listOfRules.forEach((rule) -> frequencies[grammar.getRuleId(rule)]++);
+	}
+
+	/** like {@link #incrementMap(List)} for the {@link RNAGrammar#getRuleId(Rule) ids} of the rules */
+	private synchronized void incrementCounts(final int[] ruleIds) {
+		for (int ruleId : ruleIds) frequencies[ruleId]++;
 	}
 
 	public void initializeMap(Collection<Rule> rules) {
 		// initialise to 1 to avoid 0 probabilities
-		rules.forEach((rule) -> rulesToFrequency.put(rule, 1L));
+		rules.forEach((rule) -> frequencies[grammar.getRuleId(rule)] = 1L);
 	}
 
 
 	public Map<Rule, Long> ruleCounts() {
+		Map<Rule, Long> rulesToFrequency = new HashMap<>();
+		for (int id = 0; id < frequencies.length; id++) rulesToFrequency.put(grammar.getRule(id), frequencies[id]);
 		return Collections.unmodifiableMap(rulesToFrequency);
 	}
 
@@ -12,7 +12,6 @@ import compression.samplegrammars.model.RuleProbModel;
 
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -25,15 +24,11 @@ public final class RuleProbsForGrammarSemiAdaptive {
 	private final Map<Rule, Double> rulesToProbs;
 
 	public RuleProbsForGrammarSemiAdaptive(RNAGrammar grammar, RNAWithStructure rna) {
+		// count rules of the derivation by id
+		long[] frequencies = new long[grammar.size()];
+		for (int ruleId : LeftmostDerivation.ruleIds(grammar, rna)) frequencies[ruleId]++;
 		Map<Rule, Long> rulesToFrequency = new HashMap<>();
-		// initizlize map to all 0
-		grammar.getAllRules().forEach(r -> rulesToFrequency.put(r, 0L));
-		// compute derivation
-		List<Rule> rules = LeftmostDerivation.rules(grammar, rna);
-		// count rules
-		rules.forEach((rule) -> {
-			rulesToFrequency.replace(rule, rulesToFrequency.get(rule) + 1);
-		});
+		for (int id = 0; id < frequencies.length; id++) rulesToFrequency.put(grammar.getRule(id), frequencies[id]);
 		this.rulesToProbs = RuleProbModel.computeRuleProbs(grammar, rulesToFrequency);
 	}
 
@@ -0,0 +1,83 @@
+package compression.samplegrammars.model;
+
+import compression.coding.BitSizeOnlyArithmeticEncoder;
+import compression.grammar.Grammar;
+import compression.grammar.Rule;
+
+import java.util.List;
+
+/**
+ * Computes the code length of a derivation under the adaptive counts of {@link AdaptiveRuleProbModel}
+ * from the number of uses of each rule, without replaying the derivation through the model.
+ * <p>
+ * If the k rules of a nonterminal are used n times in total, rule r c_r times, the counts of the
+ * model give these uses the probability {@code (k-1)! ∏_r c_r! / (k+n-1)!} in any order: the totals
+ * are k, k+1, ..., k+n-1, and the counts of rule r are 1, ..., c_r. So the ln of the probability of a
+ * derivation is a sum of log-gamma values {@code lnΓ(m+1) = ln m!}. The rules of {@code <start>}
+ * keep count 1, as in the model.
+ * <p>
+ * Unlike the model, this uses exact probabilities instead of probabilities rounded down to
+ * {@code precision} decimal digits, so code lengths can be a bit shorter than with
+ * {@link BitSizeOnlyArithmeticEncoder}, by far less than a bit for the default precision.
+ */
+public final class AdaptiveCodeLength {
+
+	/** ln m! for small m, summed up exactly; larger m use Stirling's series */
+	private static final double[] LN_FACTORIALS = new double[1024];
+
+	static {
+		for (int m = 2; m < LN_FACTORIALS.length; m++) LN_FACTORIALS[m] = LN_FACTORIALS[m - 1] + Math.log(m);
+	}
+
+	private AdaptiveCodeLength() {
+	}
+
+	/** @return ln m!, i.e., lnΓ(m+1), for m >= 0 */
+	public static double lnFactorial(final long m) {
+		if (m < LN_FACTORIALS.length) return LN_FACTORIALS[(int) m];
+		double x = m, inverse = 1 / x, inverseSquared = inverse * inverse;
+		return x * Math.log(x) - x + 0.5 * Math.log(2 * Math.PI * x)
+				+ inverse * (1.0 / 12 - inverseSquared * (1.0 / 360 - inverseSquared / 1260));
+	}
+
+	/**
+	 * @param ruleUses the number of uses of each rule of grammar, by {@link Grammar#getRuleId(Rule) id}
+	 * @return ln of the probability of these uses under the adaptive counts
+	 */
+	public static double lnProbability(final Grammar<?> grammar, final long[] ruleUses) {
+		double lnProbability = 0;
+		for (int nt = 0; nt < grammar.getNonTerminals().size(); nt++) {
+			int k = grammar.getEndRuleId(nt) - grammar.getFirstRuleId(nt);
+			long n = 0;
+			double lnCounts = 0;
+			for (int id = grammar.getFirstRuleId(nt); id < grammar.getEndRuleId(nt); id++) {
+				n += ruleUses[id];
+				lnCounts += lnFactorial(ruleUses[id]);
+			}
+			if (n == 0) {
+				continue;
+			} else if (grammar.getNonTerminal(nt).toString().compareTo("<start>") == 0) {
+				// fixed counts, probability 1/k for each use
+				lnProbability -= n * Math.log(k);
+			} else {
+				lnProbability += lnCounts + lnFactorial(k - 1) - lnFactorial(k + n - 1);
+			}
+		}
+		return lnProbability;
+	}
+
+	/**
+	 * @return the number of bits of the adaptive encoding of derivation, computed like
+	 * {@link BitSizeOnlyArithmeticEncoder#getFinalPrecision()}
+	 */
+	public static int getFinalPrecision(final Grammar<?> grammar, final List<Rule> derivation) {
+		return getFinalPrecision(grammar, derivation.stream().mapToInt(grammar::getRuleId).toArray());
+	}
+
+	/** {@link #getFinalPrecision(Grammar, List)} for a derivation given by the {@link Grammar#getRuleId(Rule) ids} of its rules */
+	public static int getFinalPrecision(final Grammar<?> grammar, final int[] derivation) {
+		long[] ruleUses = new long[grammar.size()];
+		for (int ruleId : derivation) ruleUses[ruleId]++;
+		return (int) (-lnProbability(grammar, ruleUses) / Math.log(2.0) + BitSizeOnlyArithmeticEncoder.TERMINATION_BITS);
+	}
+}
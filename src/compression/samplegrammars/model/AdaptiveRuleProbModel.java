@@ -5,7 +5,7 @@
  */
 package compression.samplegrammars.model;
 
-import compression.coding.BigDecimalInterval;
+import compression.coding.FrequencyInterval;
 import compression.coding.Interval;
 import compression.grammar.PairOfChar;
 import compression.grammar.Category;
@@ -13,13 +13,9 @@ import compression.grammar.NonTerminal;
 import compression.grammar.Grammar;
 import compression.grammar.Rule;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * A rule probability model that uses adaptive counts to estimate the probability of a
@@ -35,132 +31,115 @@ import java.util.Map;
  * <p>
  * When turning counts into probabilities, we use a given precision, i.e., the number of
  * decimal digits in the probability.
+ * <p>
+ * The counts are kept in arrays indexed by {@link Grammar#getRuleId(Rule) rule id}, so
+ * {@link #getIntervalFor(int)} and {@link #lnProb(int)} need no lookups.
  *
  * @author Eva
  */
 public class AdaptiveRuleProbModel implements RuleProbModel {
 
-    private Map<NonTerminal, Map<List<Category>, Interval>> ruleProbs;
     private final Grammar<?> grammar;
 
-    private final Map<NonTerminal, Map<List<Category>, Long>> ruleFreq = new HashMap<>();
+    /** the frequency of each rule by {@link Grammar#getRuleId(Rule) id} */
+    private final long[] ruleFreq;
+    /** the sum of the frequencies of the rules of each nonterminal, by {@link Grammar#getNonTerminalIndex(NonTerminal) index} */
+    private final long[] totalFreq;
+    /** whether the frequencies of the rules of each nonterminal are updated; not for {@code <start>} */
+    private final boolean[] adaptive;
 
     /**
-     * precision is the scale used for BigDecimalIntervals, i.e., the number of decimal digits in the probability
+     * precision is the scale of the BigDecimal bounds of the intervals, i.e., the number of decimal digits in the probability
      */
     private final int precision;
 
-    int counter=0;
-    private Map<NonTerminal, Map<List<Category>, Interval>> getRuleProbs() {
-        if (ruleProbs == null) {
-            fillRuleProbs();
-
-        }
-        return ruleProbs;
-    }
-
     public AdaptiveRuleProbModel(final Grammar<?> G, final int precision) {
         this.grammar = G;
         this.precision = precision;
-        for (NonTerminal nonTerminal : G.getNonTerminals()) {
-            ruleFreq.put(nonTerminal, new HashMap<>());
-            for (Rule rule : G.getRules(nonTerminal)) {
-                // adaptive count 1 for all frequency at initialisation
-                ruleFreq.get(nonTerminal).put(rhsOf(rule), 1L);
-            }
+        // adaptive count 1 for all frequency at initialisation
+        this.ruleFreq = new long[G.size()];
+        Arrays.fill(ruleFreq, 1L);
+        int nonTerminals = G.getNonTerminals().size();
+        this.totalFreq = new long[nonTerminals];
+        this.adaptive = new boolean[nonTerminals];
+        for (int nt = 0; nt < nonTerminals; nt++) {
+            totalFreq[nt] = G.getEndRuleId(nt) - G.getFirstRuleId(nt);
+            adaptive[nt] = G.getNonTerminal(nt).toString().compareTo("<start>") != 0;
         }
-        fillRuleProbs();
-        //System.out.println(ruleProbs);
-        //System.out.println("\n\n");
-
     }
 
     public AdaptiveRuleProbModel(Grammar<PairOfChar> G) {
         this(G, 10);
     }
 
-    /**
-     * update the Map for non terminals to the Map of rules to
-     */
-    private void updateRuleFrequency(Rule rule) {
-        if (rule.getLeft().toString().compareTo("<start>") == 0)
-            return;
-        else
-            updateRuleFrequency(rule.getLeft(), rhsOf(rule));
-    }
-
-    private void updateRuleFrequency(NonTerminal lhs, List<Category> rhs) {
-        this.ruleProbs = null; // invalidate old probabilities
-        // increment count
-        ruleFreq.get(lhs).merge(rhs, 1L, Long::sum);
-
-
-    }
-
-    private void fillRuleProbs() {
-        ruleProbs = new HashMap<>();
-        for (NonTerminal lhs : ruleFreq.keySet()) {
-            ruleProbs.put(lhs, new HashMap<>());
-
-            Map<List<Category>, Long> rhsFreqsForNT = ruleFreq.get(lhs);
-            long leftNumerator = 0;
-
-            // Step 1: sum up all occurrences of a particular nonterminal on the LHS of a production rule
-            long totalFreq = 0;
-            for (Rule rule : grammar.getRules(lhs)) {
-                totalFreq += rhsFreqsForNT.get(rhsOf(rule));
-            }
-            // Step 2: Compute rule probabilities
-            final BigDecimal denominator = BigDecimal.valueOf(totalFreq);
-            for (Rule rule : grammar.getRules(lhs)) {
-                List<Category> rhs = rhsOf(rule);
-//                double p = ((double) rhsFreqsForNT.get(rhs)) / (double) totalFreq;
-                long numerator = rhsFreqsForNT.get(rhs);
-                BigDecimal p = BigDecimal.valueOf(numerator).divide(denominator, precision, RoundingMode.DOWN);
-                BigDecimal left = BigDecimal.valueOf(leftNumerator).divide(denominator, precision, RoundingMode.DOWN);
-                ruleProbs.get(lhs).put(rhs, new BigDecimalInterval(left, p));
-                leftNumerator += numerator;
-            }
-        }
+    /** increments the frequency of the rule with the given id */
+    private void updateRuleFrequency(final int ruleId) {
+        int nt = grammar.getLeftIndex(ruleId);
+        if (!adaptive[nt]) return;
+        ruleFreq[ruleId]++;
+        totalFreq[nt]++;
     }
 
-    private static List<Category> rhsOf(final Rule rule) {
-        return Arrays.asList(rule.getRight());
+    /**
+     * @return the interval of the rule with the given id under the current frequencies;
+     * it starts at the total frequency of the rules of the same nonterminal before it
+     */
+    private Interval intervalOf(final int ruleId) {
+        int nt = grammar.getLeftIndex(ruleId);
+        long leftNumerator = 0;
+        for (int id = grammar.getFirstRuleId(nt); id < ruleId; id++) leftNumerator += ruleFreq[id];
+        return new FrequencyInterval(leftNumerator, ruleFreq[ruleId], totalFreq[nt], precision);
     }
 
     @Override
     public Interval getIntervalFor(final Rule rule) {
+        int ruleId = grammar.getRuleId(rule);
+        if (ruleId < 0) throw new IllegalArgumentException("rule not in grammar: " + rule);
+        return getIntervalFor(ruleId);
+    }
 
-        // Step 1: Compute the interval using old probs
-        final Interval res = getRuleProbs().get(rule.getLeft()).get(rhsOf(rule));
+    @Override
+    public Interval getIntervalFor(final int ruleId) {
+        // Step 1: Compute the interval using old frequencies
+        final Interval res = intervalOf(ruleId);
         // Step 2: Update counters
-        updateRuleFrequency(rule);
+        updateRuleFrequency(ruleId);
         // Step 3: return computed interval
         return res;
+    }
 
+    @Override
+    public double lnProb(final int ruleId) {
+        return intervalOf(ruleId).getLnLength();
     }
 
     @Override
     public List<Interval> getIntervalList(NonTerminal lhs) {
-
-        return new ArrayList<>(getRuleProbs().get(lhs).values());
+        int nt = grammar.getNonTerminalIndex(lhs);
+        List<Interval> res = new ArrayList<>(grammar.getEndRuleId(nt) - grammar.getFirstRuleId(nt));
+        long leftNumerator = 0;
+        for (int id = grammar.getFirstRuleId(nt); id < grammar.getEndRuleId(nt); id++) {
+            res.add(new FrequencyInterval(leftNumerator, ruleFreq[id], totalFreq[nt], precision));
+            leftNumerator += ruleFreq[id];
+        }
+        return res;
     }
 
     @Override
     public List<Category> getRhsFor(Interval intvl, NonTerminal lhs) {
         // Step 1: find rule for given intvl
-        List<Category> res = null;
-        for (List<Category> rhs : getRuleProbs().get(lhs).keySet()) {
-            if (intvl.equals(getRuleProbs().get(lhs).get(rhs))) {
-                res = rhs;
-                break;
+        int nt = grammar.getNonTerminalIndex(lhs);
+        long leftNumerator = 0;
+        for (int id = grammar.getFirstRuleId(nt); id < grammar.getEndRuleId(nt); id++) {
+            if (intvl.equals(new FrequencyInterval(leftNumerator, ruleFreq[id], totalFreq[nt], precision))) {
+                // Step 2: Update rule counters
+                updateRuleFrequency(id);
+                // Step 3: return rhs
+                return Arrays.asList(grammar.getRule(id).getRight());
             }
+            leftNumerator += ruleFreq[id];
         }
-        if (res == null) throw new IllegalArgumentException("Did not find any rhs for given lhs and interval");
-        // Step 2: Update rule counters
-        updateRuleFrequency(lhs, res);
-        // Step 3: return rhs
-        return res;
+        throw new IllegalArgumentException("Did not find any rhs for given lhs and interval");
     }
 
 }
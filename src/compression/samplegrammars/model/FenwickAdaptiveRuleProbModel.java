@@ -0,0 +1,184 @@
+package compression.samplegrammars.model;
+
+import compression.coding.CumulativeFrequencies;
+import compression.coding.FrequencyInterval;
+import compression.coding.Interval;
+import compression.grammar.Category;
+import compression.grammar.Grammar;
+import compression.grammar.NonTerminal;
+import compression.grammar.Rule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An adaptive rule probability model with the same probabilities as {@link AdaptiveRuleProbModel}:
+ * every rule starts with count 1, its count is incremented whenever it is used, and its interval is
+ * the part of the total count of its left-hand side between the counts of the rules before it and
+ * its own count, in the order of {@link Grammar#getRules(NonTerminal)}.
+ * <p>
+ * Unlike {@link AdaptiveRuleProbModel}, which recomputes the intervals of all rules after every use
+ * of a rule, this model keeps the counts of the rules of each nonterminal in a Fenwick tree, so that
+ * the interval of a rule, the update of its count and the search for the rule whose interval contains
+ * a given cumulative count all take O(log k) time for k rules with the same left-hand side.
+ * The latter is used by decoders via {@link #getFrequencies(NonTerminal)}.
+ */
+public class FenwickAdaptiveRuleProbModel implements RuleProbModel {
+
+	/** the counts of the rules of one nonterminal, in a Fenwick tree */
+	private static class RuleCounts implements CumulativeFrequencies {
+
+		private final List<Rule> rules;
+		private final int precision;
+		private final boolean adaptive;
+		private final long[] counts;
+		/** tree[i] is the sum of the counts of the rules with (1-based) index in (i - lowestOneBit(i), i] */
+		private final long[] tree;
+		private final int highestPowerOfTwo;
+		private long total;
+
+		RuleCounts(final List<Rule> rules, final int precision, final boolean adaptive) {
+			this.rules = rules;
+			this.precision = precision;
+			this.adaptive = adaptive;
+			this.counts = new long[rules.size()];
+			this.tree = new long[rules.size() + 1];
+			this.highestPowerOfTwo = Integer.highestOneBit(rules.size());
+			for (int i = 0; i < rules.size(); i++) increment(i);
+		}
+
+		void increment(final int index) {
+			counts[index]++;
+			total++;
+			for (int i = index + 1; i < tree.length; i += Integer.lowestOneBit(i)) tree[i]++;
+		}
+
+		/** @return the sum of the counts of the rules before index */
+		long cumLow(final int index) {
+			long sum = 0;
+			for (int i = index; i > 0; i -= Integer.lowestOneBit(i)) sum += tree[i];
+			return sum;
+		}
+
+		/** @return the index of the rule whose interval contains cumFreq */
+		int indexOf(long cumFreq) {
+			int index = 0;
+			for (int step = highestPowerOfTwo; step > 0; step >>= 1) {
+				if (index + step < tree.length && tree[index + step] <= cumFreq) {
+					index += step;
+					cumFreq -= tree[index];
+				}
+			}
+			return index;
+		}
+
+		FrequencyInterval interval(final int index) {
+			return new FrequencyInterval(cumLow(index), counts[index], total, precision);
+		}
+
+		@Override
+		public long getTotal() {
+			return total;
+		}
+
+		@Override
+		public FrequencyInterval getIntervalContaining(final long cumFreq) {
+			if (cumFreq < 0 || cumFreq >= total) throw new IllegalArgumentException("Did not find any rhs for given cumulative count");
+			return interval(indexOf(cumFreq));
+		}
+
+		@Override
+		public List<Interval> getIntervals() {
+			List<Interval> intervals = new ArrayList<>(counts.length);
+			long cumLow = 0;
+			for (long count : counts) {
+				intervals.add(new FrequencyInterval(cumLow, count, total, precision));
+				cumLow += count;
+			}
+			return intervals;
+		}
+
+		/** @return the index of the rule with the given interval */
+		int indexOf(final Interval interval) {
+			if (interval instanceof FrequencyInterval f && f.getTotal() == total) {
+				int index = indexOf(f.getCumLow());
+				if (f.equals(interval(index))) return index;
+			} else {
+				List<Interval> intervals = getIntervals();
+				for (int i = 0; i < intervals.size(); i++) {
+					if (interval.equals(intervals.get(i))) return i;
+				}
+			}
+			throw new IllegalArgumentException("Did not find any rhs for given lhs and interval");
+		}
+	}
+
+	private final Grammar<?> grammar;
+	/** the counts of the rules of each nonterminal, by {@link Grammar#getNonTerminalIndex(NonTerminal) index} */
+	private final RuleCounts[] ruleCounts;
+
+	/**
+	 * @param precision the scale of the BigDecimal bounds of the intervals, i.e., the number of decimal digits in the probability
+	 */
+	public FenwickAdaptiveRuleProbModel(final Grammar<?> G, final int precision) {
+		this.grammar = G;
+		this.ruleCounts = new RuleCounts[G.getNonTerminals().size()];
+		for (int nt = 0; nt < ruleCounts.length; nt++) {
+			NonTerminal nonTerminal = G.getNonTerminal(nt);
+			List<Rule> rules = new ArrayList<>(G.getRules(nonTerminal));
+			// like AdaptiveRuleProbModel, keep the probabilities of the rules of <start> fixed
+			ruleCounts[nt] = new RuleCounts(rules, precision, nonTerminal.toString().compareTo("<start>") != 0);
+		}
+	}
+
+	public FenwickAdaptiveRuleProbModel(final Grammar<?> G) {
+		this(G, 10);
+	}
+
+	@Override
+	public Interval getIntervalFor(final Rule rule) {
+		int ruleId = grammar.getRuleId(rule);
+		if (ruleId < 0) throw new IllegalArgumentException("rule not in grammar: " + rule);
+		return getIntervalFor(ruleId);
+	}
+
+	@Override
+	public Interval getIntervalFor(final int ruleId) {
+		int nt = grammar.getLeftIndex(ruleId);
+		RuleCounts counts = ruleCounts[nt];
+		int index = ruleId - grammar.getFirstRuleId(nt);
+		Interval res = counts.interval(index);
+		if (counts.adaptive) counts.increment(index);
+		return res;
+	}
+
+	@Override
+	public double lnProb(final int ruleId) {
+		int nt = grammar.getLeftIndex(ruleId);
+		return ruleCounts[nt].interval(ruleId - grammar.getFirstRuleId(nt)).getLnLength();
+	}
+
+	@Override
+	public List<Interval> getIntervalList(final NonTerminal lhs) {
+		return getFrequencies(lhs).getIntervals();
+	}
+
+	/**
+	 * The intervals of all rules with the given left-hand side, searchable by cumulative count.
+	 * <p>
+	 * This method does not change future probabilities; the returned intervals are only valid
+	 * until the next rule is used.
+	 */
+	public CumulativeFrequencies getFrequencies(final NonTerminal lhs) {
+		return ruleCounts[grammar.getNonTerminalIndex(lhs)];
+	}
+
+	@Override
+	public List<Category> getRhsFor(final Interval interval, final NonTerminal lhs) {
+		RuleCounts counts = ruleCounts[grammar.getNonTerminalIndex(lhs)];
+		int index = counts.indexOf(interval);
+		if (counts.adaptive) counts.increment(index);
+		return Arrays.asList(counts.rules.get(index).getRight());
+	}
+}
@@ -53,6 +53,24 @@ public interface RuleProbModel {
      */
     List<Category> getRhsFor(Interval interval, NonTerminal lhs);
 
+    /**
+     * Like {@link #getIntervalFor(Rule)} for the rule with the given
+     * {@link Grammar#getRuleId(Rule) id} in the grammar of this model,
+     * but without looking the rule up.
+     * <p>
+     * If the model adapts to the input, this method will change future probabilities.
+     */
+    Interval getIntervalFor(int ruleId);
+
+    /**
+     * The natural logarithm of the probability of the rule with the given
+     * {@link Grammar#getRuleId(Rule) id} in the grammar of this model,
+     * i.e., of the length of its interval; -∞ if the model gives the rule no interval.
+     * <p>
+     * This method does not change future probabilities.
+     */
+    double lnProb(int ruleId);
+
 
 	/** Helper method to convert from rule counts to rule probabilities */
 	static Map<Rule, Double> computeRuleProbs(Grammar<?> grammar, Map<Rule, Long> ruleCounts) {
@@ -79,7 +97,7 @@ public interface RuleProbModel {
 	 * A dummy rule probability model that returns the unit interval for every rule,
 	 * useful for parsing when an arbitrary derivation is acceptable.
 	 * <p>
-	 * Does not support getIntervalList and getRhsFor.
+	 * Does not support getIntervalList and getRhsFor, nor rule ids, as it has no grammar.
 	 */
 	RuleProbModel DONT_CARE = new RuleProbModel() {
 
@@ -88,6 +106,16 @@ public interface RuleProbModel {
 			return BigDecimalInterval.UNIT_INTERVAL;
 		}
 
+		@Override
+		public Interval getIntervalFor(final int ruleId) {
+			throw new UnsupportedOperationException("Not implemented.");
+		}
+
+		@Override
+		public double lnProb(final int ruleId) {
+			throw new UnsupportedOperationException("Not implemented.");
+		}
+
 		@Override
 		public List<Interval> getIntervalList(final NonTerminal lhs) {
 			throw new UnsupportedOperationException("Not implemented.");
@@ -115,6 +143,16 @@ public interface RuleProbModel {
 			return zeroToHalf;
 		}
 
+		@Override
+		public Interval getIntervalFor(final int ruleId) {
+			return zeroToHalf;
+		}
+
+		@Override
+		public double lnProb(final int ruleId) {
+			return zeroToHalf.getLnLength();
+		}
+
 		@Override
 		public List<Interval> getIntervalList(final NonTerminal lhs) {
 			throw new UnsupportedOperationException("Not implemented.");
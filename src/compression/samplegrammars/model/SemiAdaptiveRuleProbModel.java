@@ -8,8 +8,6 @@ import compression.grammar.RNAWithStructure;
 import compression.grammar.Rule;
 import compression.samplegrammars.RuleProbsForGrammarSemiAdaptive;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -18,36 +16,44 @@ import java.util.Map;
  * given RNA sequence.
  */
 public class SemiAdaptiveRuleProbModel implements RuleProbModel {
-	/**
-	 * store right hand side as list of categories
-	 */
-	private final Map<NonTerminal, Map<List<Category>, Interval>> ruleProbs;
+
+	private final RNAGrammar grammar;
+	/** the interval of each rule by id, see {@link StaticRuleProbModel} */
+	private final Interval[] intervals;
+	private final double[] lnProbs;
 
 	/** Requires the rules in G and in probs to match in probability! */
 	public SemiAdaptiveRuleProbModel(RNAGrammar G, RNAWithStructure rna) {
 		// obtains probability for each rule given the particular RNA
 		Map<Rule, Double> probs = new RuleProbsForGrammarSemiAdaptive(G, rna).ruleProbs();
-		this.ruleProbs = StaticRuleProbModel.computeRuleIntervalMap(G, probs);
+		this.grammar = G;
+		this.intervals = StaticRuleProbModel.computeRuleIntervals(G, probs);
+		this.lnProbs = StaticRuleProbModel.newLnProbs(intervals.length);
 	}
 
 	@Override
 	public List<Interval> getIntervalList(NonTerminal lhs) {
-		return new ArrayList<>(ruleProbs.get(lhs).values());
+		return StaticRuleProbModel.intervalsOf(grammar, intervals, lhs);
 	}
 
 	public List<Category> getRhsFor(Interval intvl, NonTerminal lhs) {
-		for (List<Category> rhs : ruleProbs.get(lhs).keySet()) {
-			if (intvl.equals(ruleProbs.get(lhs).get(rhs))) {
-				return rhs;
-			}
-		}
-		return null;
+		return StaticRuleProbModel.rhsFor(grammar, intervals, intvl, lhs);
 	}
 
 	@Override
 	public Interval getIntervalFor(final Rule rule) {
-		return ruleProbs.get(rule.getLeft()).get(Arrays.asList(rule.getRight()));
+		int id = grammar.getRuleId(rule);
+		return id < 0 ? null : intervals[id];
+	}
+
+	@Override
+	public Interval getIntervalFor(final int ruleId) {
+		return intervals[ruleId];
 	}
 
+	@Override
+	public double lnProb(final int ruleId) {
+		return StaticRuleProbModel.lnProb(intervals, lnProbs, ruleId);
+	}
 
 }
@@ -2,7 +2,6 @@ package compression.samplegrammars.model;
 
 import compression.coding.BigDecimalInterval;
 import compression.coding.Interval;
-import compression.grammar.PairOfChar;
 import compression.grammar.Category;
 import compression.grammar.NonTerminal;
 import compression.grammar.Grammar;
@@ -11,7 +10,6 @@ import compression.grammar.Rule;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -21,31 +19,34 @@ import java.util.Map;
 public class StaticRuleProbModel implements RuleProbModel {
 
 	/**
-	 * store right hand side as list, not entire rule to avoid failed lookups when used
-	 * with rules of different probabilities
+	 * the interval of each rule by {@link Grammar#getRuleId(Rule) id}, null for rules without probability;
+	 * rules are looked up by id, so that equal rules of other grammars find their interval, too
 	 */
-	private final Map<NonTerminal, Map<List<Category>, Interval>> ruleProbs;
+	private final Interval[] intervals;
+	/** ln of the lengths of intervals, computed when first needed */
+	private final double[] lnProbs;
 	Grammar<?> grammar;
 
 	/** Requires the rules in grammar and in probs to match in probability! */
 	public StaticRuleProbModel(Grammar<?> grammar, Map<Rule, Double> probs) {
 		this.grammar = grammar;
-		this.ruleProbs = computeRuleIntervalMap(grammar, probs);
+		this.intervals = computeRuleIntervals(grammar, probs);
+		this.lnProbs = newLnProbs(intervals.length);
 	}
 
-	public static Map<NonTerminal, Map<List<Category>, Interval>> computeRuleIntervalMap(
-			final Grammar<?> grammar, final Map<Rule, Double> probs) {
-		Map<NonTerminal, Map<List<Category>, Interval>> res = new HashMap<>();
-		for (NonTerminal nonTerminal : grammar.getNonTerminals()) {
-			res.put(nonTerminal, new HashMap<>());
-			//maps each rule to its subinterval of [0, 1)
+	/**
+	 * @return the subinterval of [0, 1) of each rule by {@link Grammar#getRuleId(Rule) id},
+	 * or null for rules with NaN probability
+	 */
+	static Interval[] computeRuleIntervals(final Grammar<?> grammar, final Map<Rule, Double> probs) {
+		Interval[] res = new Interval[grammar.size()];
+		for (int nt = 0; nt < grammar.getNonTerminals().size(); nt++) {
 			BigDecimal left = BigDecimal.ZERO; // left endpoint of interval
-			for (Rule rule : grammar.getRules(nonTerminal)) {
-				Double pp = probs.get(rule);
+			for (int id = grammar.getFirstRuleId(nt); id < grammar.getEndRuleId(nt); id++) {
+				Double pp = probs.get(grammar.getRule(id));
 				if (!Double.isNaN(pp)) { // don't create entry for rules with NaN prob
-					BigDecimal p = BigDecimal.valueOf(pp);//
-					ArrayList<Category> rhs = new ArrayList<>(Arrays.asList(rule.getRight()));
-					res.get(nonTerminal).put(rhs, new BigDecimalInterval(left, p));
+					BigDecimal p = BigDecimal.valueOf(pp);
+					res[id] = new BigDecimalInterval(left, p);
 					left = left.add(p);
 				}
 			}
@@ -53,35 +54,71 @@ public class StaticRuleProbModel implements RuleProbModel {
 		return res;
 	}
 
+	static double[] newLnProbs(final int rules) {
+		double[] lnProbs = new double[rules];
+		Arrays.fill(lnProbs, Double.NaN);
+		return lnProbs;
+	}
+
+	/** @return the intervals of the rules of lhs, without null entries */
+	static List<Interval> intervalsOf(final Grammar<?> grammar, final Interval[] intervals, final NonTerminal lhs) {
+		int nt = grammar.getNonTerminalIndex(lhs);
+		List<Interval> res = new ArrayList<>(grammar.getEndRuleId(nt) - grammar.getFirstRuleId(nt));
+		for (int id = grammar.getFirstRuleId(nt); id < grammar.getEndRuleId(nt); id++) {
+			if (intervals[id] != null) res.add(intervals[id]);
+		}
+		return res;
+	}
+
+	/** @return the right-hand side of the rule of lhs with the given interval, or null if there is none */
+	static List<Category> rhsFor(final Grammar<?> grammar, final Interval[] intervals, final Interval intvl,
+								 final NonTerminal lhs) {
+		int nt = grammar.getNonTerminalIndex(lhs);
+		for (int id = grammar.getFirstRuleId(nt); id < grammar.getEndRuleId(nt); id++) {
+			if (intvl.equals(intervals[id])) return Arrays.asList(grammar.getRule(id).getRight());
+		}
+		return null;
+	}
+
+	/** @return ln of the length of intervals[ruleId], memoized in lnProbs */
+	static double lnProb(final Interval[] intervals, final double[] lnProbs, final int ruleId) {
+		if (Double.isNaN(lnProbs[ruleId])) {
+			lnProbs[ruleId] = intervals[ruleId] == null ? Double.NEGATIVE_INFINITY : intervals[ruleId].getLnLength();
+		}
+		return lnProbs[ruleId];
+	}
+
 	void printRuleProbs() {
-		//System.out.println("PRINTING OUT RULE PROBS");
-		for (NonTerminal nt : ruleProbs.keySet()) {
-			//System.out.println(nt);
-			for (List<Category> catlist : ruleProbs.get(nt).keySet())
-				System.out.println(catlist.toString() + " " + ruleProbs.get(nt).get(catlist).toString());
+		for (int id = 0; id < intervals.length; id++) {
+			System.out.println(grammar.getRule(id) + " " + intervals[id]);
 		}
 	}
 
 	@Override
 	public List<Interval> getIntervalList(NonTerminal lhs) {
-		return new ArrayList<>(ruleProbs.get(lhs).values());
+		return intervalsOf(grammar, intervals, lhs);
 	}
 
 	public List<Category> getRhsFor(Interval intvl, NonTerminal lhs) {
-		for (List<Category> rhs : ruleProbs.get(lhs).keySet()) {
-			if (intvl.equals(ruleProbs.get(lhs).get(rhs))) {
-				return rhs;
-			}
-		}
-		return null;
+		return rhsFor(grammar, intervals, intvl, lhs);
 	}
 
 	@Override
 	public Interval getIntervalFor(final Rule rule) {
-		Interval res = ruleProbs.get(rule.getLeft()).get(Arrays.asList(rule.getRight()));
-		if (res == null) throw new IllegalArgumentException("rule not found in ruleProbs: " + rule);
-		return res;
+		int id = grammar.getRuleId(rule);
+		if (id < 0 || intervals[id] == null) throw new IllegalArgumentException("rule not found in ruleProbs: " + rule);
+		return intervals[id];
+	}
+
+	@Override
+	public Interval getIntervalFor(final int ruleId) {
+		if (intervals[ruleId] == null) throw new IllegalArgumentException("rule not found in ruleProbs: " + grammar.getRule(ruleId));
+		return intervals[ruleId];
 	}
 
+	@Override
+	public double lnProb(final int ruleId) {
+		return lnProb(intervals, lnProbs, ruleId);
+	}
 
 }
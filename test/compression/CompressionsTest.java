@@ -0,0 +1,50 @@
+package compression;
+
+import compression.data.Dataset;
+import compression.data.FolderBasedDataset;
+import compression.grammar.RNAGrammar;
+import compression.grammar.SecondaryStructureGrammar;
+import compression.grammargenerator.AbstractGrammarExplorer;
+import compression.parser.GrammarReaderNWriter;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class CompressionsTest {
+	private final Dataset dataset = new FolderBasedDataset("TestDataSet");
+
+	/**
+	 * Ensures bounded scoring returns the full score when it is below the threshold, and gives up otherwise.
+	 */
+	@Test
+	public void testBitsPerBaseBelowThreshold() throws IOException {
+		RNAGrammar grammar = RNAGrammar.from(
+				new GrammarReaderNWriter("grammars/testing-10/grammar-2NTs-5rules-2571.txt").getGrammarFromFile(), true);
+		double bitsPerBase = Compressions.getBitsPerBase(
+				Compressions.getEncodedLengthsParallel(dataset, grammar, RuleProbType.ADAPTIVE, null));
+
+		for (int maxTasks : new int[] { 1, 2 }) {
+			assertEquals(bitsPerBase, Compressions.getBitsPerBaseBelow(
+					dataset, grammar, RuleProbType.ADAPTIVE, null, maxTasks, bitsPerBase + 1e-9), 1e-12);
+			assertEquals(Double.POSITIVE_INFINITY, Compressions.getBitsPerBaseBelow(
+					dataset, grammar, RuleProbType.ADAPTIVE, null, maxTasks, bitsPerBase - 1e-9), 0.0);
+			assertEquals(Double.POSITIVE_INFINITY, Compressions.getBitsPerBaseBelow(
+					dataset, grammar, RuleProbType.ADAPTIVE, null, maxTasks, 0.0), 0.0);
+		}
+	}
+
+	/**
+	 * Ensures the closed-form adaptive code lengths give the same bits per base as replaying the derivations.
+	 */
+	@Test
+	public void testAdaptiveClosedForm() throws IOException {
+		for (String file : new String[] { "grammars/testing-10/grammar-2NTs-5rules-2571.txt",
+				"grammars/testing-10/grammar-2NTs-5rules-2574.txt" }) {
+			SecondaryStructureGrammar grammar = new GrammarReaderNWriter(file).getGrammarFromFile();
+			assertEquals(AbstractGrammarExplorer.getBitsPerBase(dataset, RuleProbType.ADAPTIVE, grammar, true),
+					AbstractGrammarExplorer.getBitsPerBase(dataset, RuleProbType.ADAPTIVE_CLOSED_FORM, grammar, true), 0.0);
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package compression.coding;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class FrequencyIntervalTest {
+
+	/**
+	 * Ensures the bounds and the log length equal those of the BigDecimalInterval that the adaptive model used to create.
+	 */
+	@Test
+	public void testMatchesBigDecimalInterval() {
+		Random random = new Random(7);
+		for (int i = 0; i < 10000; i++) {
+			long total = 1 + random.nextInt(i < 5000 ? 100 : 1_000_000);
+			long freq = 1 + (long) (random.nextDouble() * total);
+			long cumLow = (long) (random.nextDouble() * (total - freq + 1));
+			int scale = 1 + random.nextInt(i % 2 == 0 ? 10 : 25);
+			BigDecimalInterval expected = new BigDecimalInterval(
+					BigDecimal.valueOf(cumLow).divide(BigDecimal.valueOf(total), scale, RoundingMode.DOWN),
+					BigDecimal.valueOf(freq).divide(BigDecimal.valueOf(total), scale, RoundingMode.DOWN));
+			FrequencyInterval interval = new FrequencyInterval(cumLow, freq, total, scale);
+
+			Assert.assertEquals(expected.getLnLength(), interval.getLnLength(), 0.0);
+			Assert.assertEquals(expected, interval);
+			Assert.assertEquals(interval, expected);
+			Assert.assertEquals(0, expected.getUpperBound().compareTo(interval.getUpperBound()));
+		}
+	}
+
+	/**
+	 * Checks equality of frequency intervals with different totals by their rounded bounds.
+	 */
+	@Test
+	public void testEquals() {
+		Assert.assertEquals(new FrequencyInterval(1, 2, 4, 10), new FrequencyInterval(2, 4, 8, 10));
+		Assert.assertNotEquals(new FrequencyInterval(1, 2, 4, 10), new FrequencyInterval(1, 2, 5, 10));
+		Assert.assertThrows(IllegalArgumentException.class, () -> new FrequencyInterval(3, 2, 4, 10));
+	}
+
+	/**
+	 * Ensures intervals equal to a BigDecimalInterval, whose bounds have another scale, have its hash code.
+	 */
+	@Test
+	public void testHashCodeAgreesWithBigDecimalInterval() {
+		FrequencyInterval interval = new FrequencyInterval(1, 2, 4, 10);
+		BigDecimalInterval other = new BigDecimalInterval(0.25, 0.5);
+		Assert.assertEquals(other, interval);
+		Assert.assertEquals(other.hashCode(), interval.hashCode());
+		Assert.assertEquals(new FrequencyInterval(2, 4, 8, 10).hashCode(), interval.hashCode());
+		Assert.assertEquals(Set.of(other), Set.of(interval));
+		Assert.assertEquals(new BigDecimalInterval(BigDecimal.ZERO, BigDecimal.ONE).hashCode(),
+				new FrequencyInterval(0, 3, 3, 10).hashCode());
+	}
+
+	/**
+	 * Encodes and decodes frequency intervals with the integer coder, which uses small totals directly and
+	 * scales larger ones, and with the exact coder.
+	 */
+	@Test
+	public void testEncodeDecode() {
+		Random random = new Random(11);
+		List<List<Interval>> partitions = new ArrayList<>();
+		List<Interval> encoded = new ArrayList<>();
+		ArithmeticEncoder exact = new ExactArithmeticEncoder(), integer = new IntegerArithmeticEncoder();
+		for (int i = 0; i < 100; i++) {
+			long unit = i % 3 == 0 ? 1L << 30 : 1;
+			List<Interval> partition = new ArrayList<>();
+			long total = 0;
+			long[] freqs = new long[2 + random.nextInt(5)];
+			for (int j = 0; j < freqs.length; j++) total += freqs[j] = unit * (1 + random.nextInt(20));
+			long cumLow = 0;
+			for (long freq : freqs) {
+				partition.add(new FrequencyInterval(cumLow, freq, total, 10));
+				cumLow += freq;
+			}
+			Interval interval = partition.get(random.nextInt(partition.size()));
+			partitions.add(partition);
+			encoded.add(interval);
+			exact.encodeNext(interval);
+			integer.encodeNext(interval);
+		}
+		ArithmeticDecoder exactDecoder = new ExactArithmeticDecoder(exact.getFinalEncoding());
+		ArithmeticDecoder integerDecoder = new IntegerArithmeticDecoder(integer.getFinalEncoding());
+		for (int i = 0; i < encoded.size(); i++) {
+			Assert.assertEquals(encoded.get(i), exactDecoder.decodeNext(partitions.get(i)));
+			Assert.assertEquals(encoded.get(i), integerDecoder.decodeNext(partitions.get(i)));
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package compression.coding;
+
+import compression.GenericRNADecoder;
+import compression.GenericRNAEncoder;
+import compression.data.FolderBasedDataset;
+import compression.grammar.RNAGrammar;
+import compression.grammar.RNAWithStructure;
+import compression.samplegrammars.DowellGrammar1Bound;
+import compression.samplegrammars.model.AdaptiveRuleProbModel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class IntegerArithmeticCoderTest {
+
+	/**
+	 * Encodes random sequences of intervals from random partitions with both the integer and the exact coder,
+	 * and checks that both decode them again and that the integer encoding is at most a few bits longer.
+	 */
+	@Test
+	public void testEncodeDecodeAgainstExactCoder() {
+		Random random = new Random(42);
+		for (int run = 0; run < 20; run++) {
+			List<List<Interval>> partitions = new ArrayList<>();
+			List<Interval> encoded = new ArrayList<>();
+			ArithmeticEncoder exact = new ExactArithmeticEncoder(), integer = new IntegerArithmeticEncoder();
+			int n = random.nextInt(200);
+			for (int i = 0; i < n; i++) {
+				List<Interval> partition = randomPartition(random, 2 + random.nextInt(10));
+				Interval interval = partition.get(random.nextInt(partition.size()));
+				partitions.add(partition);
+				encoded.add(interval);
+				exact.encodeNext(interval);
+				integer.encodeNext(interval);
+			}
+			String exactBits = exact.getFinalEncoding(), integerBits = integer.getFinalEncoding();
+			Assert.assertEquals(integerBits.length(), integer.getFinalPrecision());
+			Assert.assertTrue(integerBits.length() + " vs. " + exactBits.length(), integerBits.length() <= exactBits.length() + 3);
+
+			ArithmeticDecoder exactDecoder = new ExactArithmeticDecoder(exactBits);
+			ArithmeticDecoder integerDecoder = new IntegerArithmeticDecoder(integerBits);
+			for (int i = 0; i < n; i++) {
+				Assert.assertEquals(encoded.get(i), exactDecoder.decodeNext(partitions.get(i)));
+				Assert.assertEquals(encoded.get(i), integerDecoder.decodeNext(partitions.get(i)));
+			}
+		}
+	}
+
+	/**
+	 * Encodes and decodes RNAs with the adaptive model, as in {@link compression.Compressions}.
+	 */
+	@Test
+	public void testEncodeDecodeRNAs() {
+		RNAGrammar grammar = new DowellGrammar1Bound(true).getGrammar();
+		for (RNAWithStructure rna : new FolderBasedDataset("TestDataSet")) {
+			GenericRNAEncoder encoder = new GenericRNAEncoder(
+					new AdaptiveRuleProbModel(grammar), new IntegerArithmeticEncoder(), grammar, grammar.getStartSymbol());
+			String bits = encoder.encodeRNA(rna);
+			GenericRNADecoder decoder = new GenericRNADecoder(
+					new AdaptiveRuleProbModel(grammar), new IntegerArithmeticDecoder(bits), grammar.getStartSymbol());
+			Assert.assertEquals(rna, decoder.decode());
+		}
+	}
+
+	/**
+	 * Checks the encoding of a single interval and of no interval at all.
+	 */
+	@Test
+	public void testFinalEncoding() {
+		ArithmeticEncoder enc = new IntegerArithmeticEncoder();
+		Assert.assertEquals("01", enc.getFinalEncoding());
+		enc.encodeNext(new BigDecimalInterval(BigDecimal.valueOf(0.5), BigDecimal.valueOf(0.25)));
+		// 10 selects [1/2, 3/4), 01 ends within it
+		Assert.assertEquals("1001", enc.getFinalEncoding());
+		Assert.assertEquals(4, enc.getFinalPrecision());
+	}
+
+	/** @return a partition of [0,1) into k intervals with random lengths, rounded down like the rule probability models */
+	private static List<Interval> randomPartition(final Random random, final int k) {
+		long[] counts = new long[k];
+		long total = 0;
+		for (int i = 0; i < k; i++) total += counts[i] = 1 + random.nextInt(100);
+		List<Interval> partition = new ArrayList<>(k);
+		long left = 0;
+		for (int i = 0; i < k; i++) {
+			partition.add(new BigDecimalInterval(
+					BigDecimal.valueOf(left).divide(BigDecimal.valueOf(total), 10, RoundingMode.DOWN),
+					BigDecimal.valueOf(counts[i]).divide(BigDecimal.valueOf(total), 10, RoundingMode.DOWN)));
+			left += counts[i];
+		}
+		return partition;
+	}
+}
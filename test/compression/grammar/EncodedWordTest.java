@@ -0,0 +1,60 @@
+package compression.grammar;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class EncodedWordTest {
+
+	@Test
+	public void testRNAEncodingMatchesTerminals() {
+		RNAWithStructure rna = new RNAWithStructure("ACgUAaN", "((.)).<");
+		EncodedWord<PairOfChar> encoded = rna.encoded();
+		assertEquals(7, encoded.length());
+		// 'a' and 'A' are equal as terminals, but the encoding keeps the original letters
+		assertEquals(7, encoded.alphabet().size());
+		for (int i = 0; i < rna.getNumberOfBases(); i++) {
+			assertEquals(rna.primaryStructure.charAt(i), encoded.terminalAt(i).getChars().getPry());
+			assertEquals(rna.secondaryStructure.charAt(i), encoded.terminalAt(i).getChars().getSec());
+		}
+		assertEquals(rna, RNAWithStructure.from(rna.asTerminals()));
+		assertSame(encoded, rna.encoded());
+	}
+
+	@Test
+	public void testSecondaryStructureEncoding() {
+		RNAWithStructure rna = new RNAWithStructure("ACGUACG", "((.)).(");
+		EncodedWord<Character> encoded = rna.encodedSecondaryStructure();
+		assertEquals(3, encoded.alphabet().size());
+		assertEquals(List.of(0, 0, 1, 2, 2, 1, 0), symbols(encoded));
+		List<Terminal<Character>> terminals = rna.secondaryStructureAsTerminals();
+		assertEquals(7, terminals.size());
+		for (int i = 0; i < terminals.size(); i++) {
+			assertEquals(new CharTerminal(rna.secondaryStructure.charAt(i)), terminals.get(i));
+		}
+	}
+
+	@Test
+	public void testOfMatchesList() {
+		List<Terminal<Character>> word = new RNAWithStructure("ACGUA", "(.)..").secondaryStructureAsTerminals();
+		EncodedWord<Character> encoded = EncodedWord.of(word);
+		assertEquals(word, encoded.asTerminals());
+		assertEquals(List.of(0, 1, 2, 1, 1), symbols(encoded));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyLetters() {
+		StringBuilder sb = new StringBuilder();
+		for (char c = 0; c <= EncodedWord.MAX_ALPHABET_SIZE; c++) sb.append(c);
+		new RNAWithStructure(sb.toString(), sb.toString()).encodedSecondaryStructure();
+	}
+
+	private static List<Integer> symbols(final EncodedWord<?> word) {
+		Integer[] res = new Integer[word.length()];
+		for (int i = 0; i < res.length; i++) res[i] = word.symbolAt(i);
+		return List.of(res);
+	}
+}
@@ -35,5 +35,36 @@ public class RNAGrammarTest extends TestCase {
 		Assert.assertEquals(RG.getRules(S).size(),20);
 	}
 
+	@Test
+	public void testRuleIds() {
+		NonTerminal S = new NonTerminal("S");
+		NonTerminal Z = new NonTerminal("Z");
+		Grammar.Builder<Character> GB = new Grammar.Builder<>("test", S);
+		GB.addRule(S, new CharTerminal('.'));
+		GB.addRule(S, new CharTerminal('('), Z, new CharTerminal(')'));
+		GB.addRule(Z, S);
+		RNAGrammar RG = RNAGrammar.from(SecondaryStructureGrammar.from(GB.build()), true);
+
+		Assert.assertEquals(2, RG.getNonTerminals().size());
+		int nextId = 0;
+		for (int nt = 0; nt < 2; nt++) {
+			NonTerminal lhs = RG.getNonTerminal(nt);
+			Assert.assertEquals(nt, RG.getNonTerminalIndex(lhs));
+			Assert.assertEquals(nextId, RG.getFirstRuleId(nt));
+			for (Rule rule : RG.getRules(lhs)) {
+				Assert.assertEquals(nextId, RG.getRuleId(rule));
+				Assert.assertEquals(rule, RG.getRule(nextId));
+				Assert.assertEquals(nt, RG.getLeftIndex(nextId));
+				// equal rules of other grammars have the same id
+				Assert.assertEquals(nextId, RG.getRuleId(new Rule(rule.getLeft(), rule.getRight())));
+				nextId++;
+			}
+			Assert.assertEquals(nextId, RG.getEndRuleId(nt));
+		}
+		Assert.assertEquals(RG.size(), nextId);
+		Assert.assertEquals(-1, RG.getRuleId(new Rule(Z, Z)));
+		Assert.assertEquals(-1, RG.getNonTerminalIndex(new NonTerminal("X")));
+	}
+
 
 }
@@ -0,0 +1,98 @@
+package compression.grammargenerator.localsearch;
+
+import compression.grammar.CharTerminal;
+import compression.grammar.EncodedWord;
+import compression.grammar.Grammar;
+import compression.grammar.NonTerminal;
+import compression.grammar.SecondaryStructureGrammar;
+import compression.grammar.Terminal;
+import compression.parser.SRFParser;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DatasetFilterTest {
+
+	/**
+	 * Verifies that, before any rejection, words are tried by length bucket, keeping the given
+	 * order within a bucket.
+	 */
+	@Test
+	public void testInitialOrderByLengthBucket() {
+		DatasetFilter filter = new DatasetFilter(List.of(word(".........."), word("..."), word(".."), word("......")));
+		assertArrayEquals(new int[]{1, 2, 3, 0}, filter.order());
+	}
+
+	/**
+	 * Confirms a word that keeps rejecting candidates moves ahead of cheaper words, that
+	 * the result agrees with {@link Utils#passesDataset} and that saved parses are counted.
+	 */
+	@Test
+	public void testRejectingWordMovesForward() {
+		List<EncodedWord<Character>> words = new ArrayList<>();
+		for (int i = 0; i < 5; i++) words.add(word("."));
+		words.add(word("..(.).."));
+		DatasetFilter filter = new DatasetFilter(words);
+		SRFParser<Character> parser = new SRFParser<>(unpairedOnly());
+
+		assertFalse(filter.passes(parser));
+		assertEquals(Utils.passesDataset(parser, words), filter.passes(parser));
+		assertArrayEquals(new long[]{12, 0}, filter.takeStepStats());
+		for (int i = 0; i < 200; i++) filter.passes(parser);
+		assertEquals(5, filter.order()[0]);
+		assertArrayEquals(new long[]{1, 5}, filterStats(filter, parser));
+
+		SRFParser<Character> anyStructure = new SRFParser<>(anyStructure());
+		assertTrue(filter.passes(anyStructure));
+		assertArrayEquals(new long[]{6, 0}, filter.takeStepStats());
+	}
+
+	/**
+	 * Checks that saved parses are counted against file order, negative when the rejecting
+	 * word comes earlier in file order than in the learned order.
+	 */
+	@Test
+	public void testParsesSavedComparedWithFileOrder() {
+		DatasetFilter filter = new DatasetFilter(List.of(word("..(.).."), word(".")));
+		assertFalse(filter.passes(new SRFParser<>(unpairedOnly())));
+		assertArrayEquals(new long[]{2, -1}, filter.takeStepStats());
+	}
+
+	/** @return the parse stats of one more check */
+	private static long[] filterStats(final DatasetFilter filter, final SRFParser<Character> parser) {
+		filter.takeStepStats();
+		filter.passes(parser);
+		return filter.takeStepStats();
+	}
+
+	private static EncodedWord<Character> word(final String structure) {
+		List<Terminal<Character>> res = new ArrayList<>();
+		for (char c : structure.toCharArray()) res.add(new CharTerminal(c));
+		return EncodedWord.of(res);
+	}
+
+	private static SecondaryStructureGrammar unpairedOnly() {
+		NonTerminal S = new NonTerminal("S");
+		Grammar<Character> grammar = new Grammar.Builder<Character>("unpaired", S)
+				.addRule(S, new CharTerminal('.'))
+				.addRule(S, S, S)
+				.build();
+		return SecondaryStructureGrammar.from(grammar);
+	}
+
+	private static SecondaryStructureGrammar anyStructure() {
+		NonTerminal S = new NonTerminal("S");
+		Grammar<Character> grammar = new Grammar.Builder<Character>("anyStructure", S)
+				.addRule(S, new CharTerminal('.'))
+				.addRule(S, S, S)
+				.addRule(S, new CharTerminal('('), S, new CharTerminal(')'))
+				.build();
+		return SecondaryStructureGrammar.from(grammar);
+	}
+}
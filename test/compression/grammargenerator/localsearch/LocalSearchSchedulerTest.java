@@ -0,0 +1,77 @@
+package compression.grammargenerator.localsearch;
+
+import compression.grammargenerator.localsearch.dataclasses.Config;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class LocalSearchSchedulerTest {
+
+	/**
+	 * Ensures the results come back in the order of the runs and no more runs than allowed execute at once.
+	 */
+	@Test
+	public void testRunsAreLimitedAndResultsOrdered() throws Exception {
+		Config config = Config.builder().threads(4).maxConcurrentRuns(2).build();
+		AtomicInteger running = new AtomicInteger(), maxRunning = new AtomicInteger();
+		List<Callable<Integer>> runs = new ArrayList<>();
+		for (int r = 0; r < 10; r++) {
+			final int run = r;
+			runs.add(() -> {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				Thread.sleep(5);
+				running.decrementAndGet();
+				return run;
+			});
+		}
+
+		try (LocalSearchScheduler scheduler = new LocalSearchScheduler(config)) {
+			List<Future<Integer>> results = scheduler.submitAll(runs);
+			for (int r = 0; r < 10; r++) {
+				assertEquals(r, (int) results.get(r).get());
+			}
+		}
+		assertTrue(maxRunning.get() <= 2);
+	}
+
+	/**
+	 * Checks that a failing run is reported through its future and the other runs still complete.
+	 */
+	@Test
+	public void testFailedRunDoesNotStopOthers() throws Exception {
+		IllegalStateException failure = new IllegalStateException("no seed");
+		List<Callable<String>> runs = List.of(() -> { throw failure; }, () -> "done");
+
+		try (LocalSearchScheduler scheduler = new LocalSearchScheduler(Config.builder().maxConcurrentRuns(1).build())) {
+			List<Future<String>> results = scheduler.submitAll(runs);
+			ExecutionException e = assertThrows(ExecutionException.class, () -> results.get(0).get());
+			assertSame(failure, e.getCause());
+			assertEquals("done", results.get(1).get());
+		}
+	}
+
+	/**
+	 * Verifies that limits of 0 default to the number of threads and that steps run in order by default.
+	 */
+	@Test
+	public void testDefaultLimits() {
+		try (LocalSearchScheduler scheduler = new LocalSearchScheduler(Config.builder().threads(3).build())) {
+			assertEquals(3, scheduler.threads());
+			assertEquals(3, scheduler.maxConcurrentRuns());
+			assertEquals(3, scheduler.scoringParallelism());
+			assertEquals(1, scheduler.stepParallelism());
+			assertNull(scheduler.stepPool());
+		}
+	}
+}
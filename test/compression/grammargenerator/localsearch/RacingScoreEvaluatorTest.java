@@ -0,0 +1,62 @@
+package compression.grammargenerator.localsearch;
+
+import compression.RuleProbType;
+import compression.data.Dataset;
+import compression.data.FolderBasedDataset;
+import compression.grammar.RNAWithStructure;
+import compression.grammar.SecondaryStructureGrammar;
+import compression.grammargenerator.AbstractGrammarExplorer;
+import compression.grammargenerator.localsearch.dataclasses.SearchState;
+import compression.parser.GrammarReaderNWriter;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class RacingScoreEvaluatorTest {
+	private final Dataset dataset = new FolderBasedDataset("TestDataSet");
+
+	/**
+	 * Ensures a grammar that is not abandoned gets the score of scoring it on the whole dataset.
+	 */
+	@Test
+	public void testScoreMatchesBitsPerBase() throws IOException {
+		SecondaryStructureGrammar grammar = grammar();
+		double expected = AbstractGrammarExplorer.getBitsPerBase(dataset, RuleProbType.ADAPTIVE, grammar, true);
+		RacingScoreEvaluator evaluator = new RacingScoreEvaluator(rnas(), true, 1, 2, 3.0);
+
+		assertEquals(expected, evaluator.score(grammar), 1e-12);
+	}
+
+	/**
+	 * Checks that a grammar is abandoned after the first stage when racing against itself, and is scored on
+	 * all RNAs if the confidence is too high to abandon it.
+	 */
+	@Test
+	public void testRacesAgainstIncumbent() throws IOException {
+		SecondaryStructureGrammar grammar = grammar();
+		double score = AbstractGrammarExplorer.getBitsPerBase(dataset, RuleProbType.ADAPTIVE, grammar, true);
+		SearchState itself = new SearchState(new boolean[] { true }, grammar, score);
+		SearchState other = new SearchState(new boolean[] { false }, grammar("grammar-2NTs-5rules-2574.txt"), 0.0);
+
+		assertEquals(Double.POSITIVE_INFINITY, new RacingScoreEvaluator(rnas(), true, 1, 2, 0.0).score(grammar, itself), 0.0);
+		assertEquals(score, new RacingScoreEvaluator(rnas(), true, 1, 2, 1e9).score(grammar, other), 1e-12);
+	}
+
+	private List<RNAWithStructure> rnas() {
+		List<RNAWithStructure> rnas = new ArrayList<>();
+		dataset.forEach(rnas::add);
+		return rnas;
+	}
+
+	private static SecondaryStructureGrammar grammar() throws IOException {
+		return grammar("grammar-2NTs-5rules-2571.txt");
+	}
+
+	private static SecondaryStructureGrammar grammar(final String file) throws IOException {
+		return new GrammarReaderNWriter("grammars/testing-10/" + file).getGrammarFromFile();
+	}
+}
@@ -52,7 +52,8 @@ public class RuleMaskCodecTest {
 	}
 
 	/**
-	 * Verifies buildGrammarIfValid creates a grammar when the mask includes the start rule.
+	 * Verifies buildGrammarIfValid creates an unnamed grammar when the mask includes the start rule,
+	 * and that named names it after the indices of its rules.
 	 */
 	@Test
 	public void testBuildGrammarIfValidCreatesGrammar() {
@@ -64,6 +65,8 @@ public class RuleMaskCodecTest {
 		SecondaryStructureGrammar grammar = codec.buildGrammarIfValid(new boolean[] { true, false });
 		assertNotNull(grammar);
 		assertEquals(1, grammar.size());
+		assertNull(grammar.name);
+		assertEquals("LocalSearch_{0}", RuleMaskCodec.named(grammar, RuleMaskCodec.pack(new boolean[] { true, false })).name);
 	}
 
 	/**
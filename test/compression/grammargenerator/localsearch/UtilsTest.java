@@ -1,6 +1,7 @@
 package compression.grammargenerator.localsearch;
 
 import compression.grammar.CharTerminal;
+import compression.grammar.EncodedWord;
 import compression.grammar.Grammar;
 import compression.grammar.NonTerminal;
 import compression.grammar.SecondaryStructureGrammar;
@@ -22,7 +23,7 @@ public class UtilsTest {
 	public void testPassesDatasetWhenAllWordsParsable() {
 		SecondaryStructureGrammar grammar = minimalGrammar();
 		SRFParser<Character> parser = new SRFParser<>(grammar);
-		List<Terminal<Character>> word = List.of(new CharTerminal('.'));
+		EncodedWord<Character> word = EncodedWord.of(List.<Terminal<Character>>of(new CharTerminal('.')));
 
 		assertTrue(Utils.passesDataset(parser, List.of(word)));
 	}
@@ -34,8 +35,8 @@ public class UtilsTest {
 	public void testPassesDatasetWhenAnyWordUnparsable() {
 		SecondaryStructureGrammar grammar = minimalGrammar();
 		SRFParser<Character> parser = new SRFParser<>(grammar);
-		List<Terminal<Character>> parsable = List.of(new CharTerminal('.'));
-		List<Terminal<Character>> unparsable = List.of(new CharTerminal('('));
+		EncodedWord<Character> parsable = EncodedWord.of(List.<Terminal<Character>>of(new CharTerminal('.')));
+		EncodedWord<Character> unparsable = EncodedWord.of(List.<Terminal<Character>>of(new CharTerminal('(')));
 
 		assertFalse(Utils.passesDataset(parser, List.of(parsable, unparsable)));
 	}
@@ -0,0 +1,79 @@
+package compression.grammargenerator.localsearch;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class VerdictCacheTest {
+
+	/**
+	 * Ensures a mask is computed once and then served from the cache, also for an equal mask instance,
+	 * and that changing the mask after a lookup does not change the cached key.
+	 */
+	@Test
+	public void testVerdictIsComputedOnce() {
+		VerdictCache cache = new VerdictCache(10);
+		int[] computed = {0};
+		VerdictCache.Verdict verdict = new VerdictCache.Verdict(true, 1.5);
+
+		BitSet mask = RuleMaskCodec.pack(new boolean[] { true, false, true });
+
+		assertSame(verdict, cache.get(mask, () -> { computed[0]++; return verdict; }));
+		mask.clear(2);
+		assertFalse(cache.get(mask, () -> { computed[0]++; return VerdictCache.Verdict.REJECTED; }).parsable());
+		assertSame(verdict, cache.get(RuleMaskCodec.pack(new boolean[] { true, false, true }), () -> { computed[0]++; return null; }));
+
+		assertEquals(2, computed[0]);
+		assertEquals(1, cache.stats().hitCount());
+		assertEquals(2, cache.stats().missCount());
+	}
+
+	/**
+	 * Ensures the verdict of an abandoned grammar is reused for bounds it settles and recomputed for higher ones.
+	 */
+	@Test
+	public void testAbandonedVerdictIsRecomputedForHigherBound() {
+		VerdictCache cache = new VerdictCache(10);
+		BitSet mask = RuleMaskCodec.pack(new boolean[] { true, true });
+		VerdictCache.Verdict exact = new VerdictCache.Verdict(true, 2.5);
+
+		assertFalse(cache.get(mask, 2.0, () -> VerdictCache.Verdict.abandoned(2.0)).exact());
+		assertEquals(2.0, cache.get(mask, 1.5, () -> exact).bitsPerBase(), 0.0);
+		assertSame(exact, cache.get(mask, 3.0, () -> exact));
+		assertSame(exact, cache.get(mask, () -> null));
+	}
+
+	/**
+	 * Ensures a computation that gives up is not cached, so the mask is computed again next time.
+	 */
+	@Test
+	public void testGivenUpVerdictIsNotCached() {
+		VerdictCache cache = new VerdictCache(10);
+		BitSet mask = RuleMaskCodec.pack(new boolean[] { true });
+		VerdictCache.Verdict verdict = new VerdictCache.Verdict(true, 1.5);
+
+		assertNull(cache.get(mask, 2.0, () -> null));
+		assertEquals(0, cache.size());
+		assertSame(verdict, cache.get(mask, 2.0, () -> verdict));
+	}
+
+	/**
+	 * Checks that masks longer than one word pack into consecutive longs.
+	 */
+	@Test
+	public void testPackSpansWords() {
+		boolean[] mask = new boolean[70];
+		mask[0] = true;
+		mask[63] = true;
+		mask[64] = true;
+		mask[69] = true;
+
+		assertArrayEquals(new long[] { 1L | 1L << 63, 1L | 1L << 5 }, RuleMaskCodec.pack(mask).toLongArray());
+	}
+}
@@ -32,4 +32,12 @@ public class ConfigTest {
 		assertEquals(500, updated.maxCandidatesPerStep());
 		assertEquals(original.searchStrategy(), updated.searchStrategy());
 	}
+
+	/**
+	 * Checks that racing is off by default, so that neighbors are scored exactly unless racing is asked for.
+	 */
+	@Test
+	public void testRacingIsOffByDefault() {
+		assertEquals(0, Config.defaults().racingFirstStage());
+	}
 }
@@ -33,6 +33,19 @@ public class SearchStrategyTest {
 		assertEquals(0, tracker.bestIndex());
 	}
 
+	/**
+	 * Ensures stopsAtFirstImprovement matches whether a tracker stops after its first improving candidate.
+	 */
+	@Test
+	public void testStopsAtFirstImprovementMatchesShouldStop() {
+		for (SearchStrategy strategy : SearchStrategy.values()) {
+			ImprovementTracker tracker = strategy.newTracker();
+			tracker.consider(new SearchState(new boolean[] { true }, null, 1.0), 0, 2.0);
+
+			assertEquals(strategy.name(), tracker.stopsAtFirstImprovement(), tracker.shouldStop());
+		}
+	}
+
 	/**
 	 * Verifies that BEST_IMPROVEMENT keeps the lowest bits-per-base candidate while never early-stopping.
 	 */
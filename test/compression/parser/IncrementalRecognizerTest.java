@@ -0,0 +1,156 @@
+package compression.parser;
+
+import compression.grammar.CharTerminal;
+import compression.grammar.EncodedWord;
+import compression.grammar.NonTerminal;
+import compression.grammar.Rule;
+import compression.grammar.SecondaryStructureGrammar;
+import compression.grammar.Terminal;
+import compression.grammargenerator.AutoGeneratedGrammars;
+import compression.util.MyMultimap;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class IncrementalRecognizerTest {
+
+	/**
+	 * Checks the incremental recognition of random neighbours (one rule added, removed or
+	 * swapped) of random grammars against a fresh {@link SRFParser}.
+	 */
+	@Test
+	public void testNeighboursMatchSRFParser() {
+		Random random = new Random(3);
+		Rule[] universe = AutoGeneratedGrammars.generateAllRules(3).toArray(new Rule[0]);
+		NonTerminal start = new NonTerminal("A2");
+		List<EncodedWord<Character>> words = new ArrayList<>();
+		for (String structure : List.of(".", "()", "(.)", "..(..)..", "((.)).(.)", "(.)(..)", ")(", "(((...)))..(.)")) {
+			words.add(word(structure));
+		}
+		for (int i = 0; i < 10; i++) words.add(randomStructure(random, 1 + random.nextInt(30)));
+		IncrementalRecognizer<Character> recognizer = new IncrementalRecognizer<>(universe, start, words);
+
+		int checked = 0, parsable = 0;
+		for (int g = 0; g < 60; g++) {
+			boolean[] rules = new boolean[universe.length];
+			for (int r = 0; r < rules.length; r++) rules[r] = random.nextDouble() < 0.4;
+			// alternate between plain and packed rule masks
+			if (g % 2 == 0) recognizer.setRules(rules);
+			else recognizer.setRules(packed(rules));
+			for (int w = 0; w < words.size(); w++) {
+				assertEquals(parses(universe, start, rules, words.get(w)), recognizer.parses(w));
+			}
+			for (int c = 0; c < 20; c++) {
+				boolean[] candidate = rules.clone();
+				int r1 = random.nextInt(rules.length), r2 = random.nextInt(rules.length);
+				switch (c % 3) {
+					case 0 -> candidate[r1] = false;
+					case 1 -> candidate[r1] = true;
+					default -> {
+						candidate[r1] = !candidate[r1];
+						candidate[r2] = !candidate[r2];
+					}
+				}
+				if (g % 2 == 0) recognizer.setCandidate(candidate);
+				else recognizer.setCandidate(packed(candidate));
+				for (int w = 0; w < words.size(); w++) {
+					boolean expected = parses(universe, start, candidate, words.get(w));
+					assertEquals(expected, recognizer.candidateParses(w));
+					checked++;
+					if (expected) parsable++;
+				}
+			}
+		}
+		// make sure the test covers both outcomes
+		assertEquals(true, parsable > checked / 10 && parsable < checked * 9 / 10);
+	}
+
+	/**
+	 * Derives a deeply nested structure on a thread with a small stack: the derivation of a word is
+	 * walked without one call frame per span, so its depth is not limited by the thread stack.
+	 */
+	@Test
+	public void testDeepDerivationOnSmallStack() throws InterruptedException {
+		NonTerminal start = new NonTerminal("S");
+		Rule[] universe = {
+				new Rule(start, new CharTerminal('('), start, new CharTerminal(')')),
+				new Rule(start, new CharTerminal('.'))
+		};
+		List<EncodedWord<Character>> words = List.of(word("(".repeat(3000) + "." + ")".repeat(3000)), word("(.)"));
+		boolean[] rules = {true, true};
+		boolean[][] results = new boolean[2][];
+		Throwable[] failure = new Throwable[1];
+		Thread thread = new Thread(null, () -> {
+			try {
+				IncrementalRecognizer<Character> recognizer = new IncrementalRecognizer<>(universe, start, words);
+				recognizer.setRules(rules);
+				recognizer.setCandidate(new boolean[]{true, false});
+				results[0] = new boolean[]{recognizer.parses(0), recognizer.parses(1)};
+				results[1] = new boolean[]{recognizer.candidateParses(0), recognizer.candidateParses(1)};
+			} catch (Throwable e) {
+				failure[0] = e;
+			}
+		}, "small stack", 1 << 16);
+		thread.start();
+		thread.join();
+		assertEquals(null, failure[0]);
+		assertArrayEquals(new boolean[]{true, true}, results[0]);
+		assertArrayEquals(new boolean[]{false, false}, results[1]);
+	}
+
+	private static BitSet packed(final boolean[] mask) {
+		BitSet bits = new BitSet();
+		for (int r = 0; r < mask.length; r++) bits.set(r, mask[r]);
+		return bits;
+	}
+
+	/** @return whether the grammar of the rules in mask parses word, according to {@link SRFParser} */
+	private static boolean parses(final Rule[] universe, final NonTerminal start, final boolean[] mask,
+	                              final EncodedWord<Character> word) {
+		MyMultimap<NonTerminal, Rule> rules = new MyMultimap<>();
+		for (int r = 0; r < mask.length; r++) {
+			if (mask[r]) rules.put(universe[r].left, universe[r]);
+		}
+		SecondaryStructureGrammar grammar;
+		try {
+			grammar = new SecondaryStructureGrammar("test", start, rules);
+		} catch (IllegalArgumentException e) {
+			return false; // no rules for the start symbol
+		}
+		return new SRFParser<>(grammar).parsable(word);
+	}
+
+	private static EncodedWord<Character> word(final String structure) {
+		List<Terminal<Character>> res = new ArrayList<>();
+		for (char c : structure.toCharArray()) res.add(new CharTerminal(c));
+		return EncodedWord.of(res);
+	}
+
+	private static EncodedWord<Character> randomStructure(final Random random, final int n) {
+		StringBuilder sb = new StringBuilder();
+		int open = 0;
+		while (sb.length() < n) {
+			int remaining = n - sb.length();
+			double r = random.nextDouble();
+			if (open == remaining) {
+				sb.append(')');
+				open--;
+			} else if (r < 0.3 && open + 2 <= remaining) {
+				sb.append('(');
+				open++;
+			} else if (r < 0.6 && open > 0) {
+				sb.append(')');
+				open--;
+			} else {
+				sb.append('.');
+			}
+		}
+		return word(sb.toString());
+	}
+}
@@ -1,6 +1,7 @@
 package compression.parser;
 
 import compression.grammar.*;
+import compression.grammargenerator.RandomGrammarExplorer;
 import compression.grammargenerator.UnparsableException;
 import compression.parser.CYKParser;
 import compression.parser.SRFParser;
@@ -13,8 +14,12 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static junit.framework.TestCase.assertEquals;
 
@@ -124,4 +129,227 @@ public class SRFParserTest extends TestCase {
     }
 
 
+    @Test
+    public void testReusedParserMatchesFreshParser() throws UnparsableException {
+        // parse words of decreasing and increasing length with the same parser, so that
+        // the DP tables are reused, reset and grown
+        List<List<Terminal<Character>>> words = List.of(word2, word, List.of(OP, DT, CL), word2,
+                List.of(OP, DT), word, new ArrayList<>(Arrays.asList(OP, OP, DT, CL, DT, CL, DT)));
+        SRFParser<Character> reused = new SRFParser<>(simpleGrammar);
+        for (List<Terminal<Character>> w : words) {
+            SRFParser<Character> fresh = new SRFParser<>(simpleGrammar);
+            assertEquals(fresh.parsable(w), reused.parsable(w));
+            if (fresh.parsable(w)) {
+                assertEquals(fresh.mostLikelyLeftmostDerivationFor(w), reused.mostLikelyLeftmostDerivationFor(w));
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyWordIsUnparsable() {
+        List<Terminal<Character>> empty = List.of();
+        assertFalse(testingSRFParser.parsable(empty));
+        try {
+            testingSRFParser.leftmostDerivationFor(empty);
+            fail("the empty word has no derivation");
+        } catch (UnparsableException expected) {
+        }
+        try {
+            testingSRFParser.mostLikelyWord(empty);
+            fail("the empty word has no derivation");
+        } catch (UnparsableException expected) {
+        }
+    }
+
+    @Test
+    public void testRecognitionAgreesWithViterbi() {
+        // parsable uses the bitset recognizer, leftmostDerivationFor the Viterbi tables
+        RandomGrammarExplorer generator = new RandomGrammarExplorer(4);
+        Random random = new Random(42);
+        List<List<Terminal<Character>>> words = List.of(word, word2, List.of(DT), List.of(OP, CL),
+                List.of(OP, DT, CL), List.of(CL, DT, OP), new ArrayList<>(Arrays.asList(OP, OP, DT, CL, DT, CL, DT)));
+        for (int i = 0; i < 200; i++) {
+            SecondaryStructureGrammar G = generator.randomGrammar(random, 5 + random.nextInt(40));
+            SRFParser<Character> parser = new SRFParser<>(G);
+            for (List<Terminal<Character>> w : words) {
+                boolean viterbi = true;
+                try {
+                    parser.leftmostDerivationFor(w);
+                } catch (UnparsableException e) {
+                    viterbi = false;
+                }
+                assertEquals(G + " on " + w, viterbi, parser.parsable(w));
+            }
+        }
+    }
+
+    @Test
+    public void testTerminalsMatchByEquals() throws UnparsableException {
+        // PairOfChar ignores the case of the base, so the terminal lookup must do the same
+        NonTerminal S = new NonTerminal("S"), P = new NonTerminal("P");
+        PairOfCharTerminal a = new PairOfChar('a', '.').asTerminal();
+        PairOfCharTerminal g = new PairOfChar('g', '(').asTerminal(), c = new PairOfChar('c', ')').asTerminal();
+        Grammar<PairOfChar> G = new Grammar.Builder<PairOfChar>("pairs", S)
+                .addRule(S, P)
+                .addRule(P, a)
+                .addRule(P, g, P, c)
+                .build();
+        SRFParser<PairOfChar> parser = new SRFParser<>(G);
+        List<Terminal<PairOfChar>> word = List.of(new PairOfChar('G', '(').asTerminal(),
+                new PairOfChar('A', '.').asTerminal(), new PairOfChar('c', ')').asTerminal());
+        assertTrue(parser.parsable(word));
+        assertEquals(List.of(new Rule(S, P), new Rule(P, g, P, c), new Rule(P, a)), parser.leftmostDerivationFor(word));
+        assertFalse(parser.parsable(List.of(new PairOfChar('A', '(').asTerminal())));
+    }
+
+    @Test
+    public void testParallelFillMatchesSequentialFill() throws UnparsableException {
+        Random random = new Random(17);
+        List<List<Terminal<Character>>> words = new ArrayList<>();
+        for (int i = 0; i < 10; i++) words.add(randomStructure(random, 100 + random.nextInt(100)));
+        RandomGrammarExplorer generator = new RandomGrammarExplorer(4);
+        List<Grammar<Character>> grammars = new ArrayList<>(List.of(simpleGrammar));
+        for (int i = 0; i < 20; i++) grammars.add(generator.randomGrammar(random, 5 + random.nextInt(40)));
+        Grammar<Character> anyStructure = new Grammar.Builder<Character>("anyStructure", A0)
+                .addRule(A0, DT)
+                .addRule(A0, A0, A0)
+                .addRule(A0, OP, A0, CL)
+                .build();
+        grammars.add(anyStructure);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (Grammar<Character> G : grammars) {
+                SRFParser<Character> sequential = new SRFParser<>(G);
+                SRFParser<Character> parallel = new SRFParser<>(G);
+                parallel.setParallelFill(pool, 1);
+                for (List<Terminal<Character>> w : words) {
+                    assertEquals(sequential.parsable(w), parallel.parsable(w));
+                    assertEquals(sequential.logProbabilityOf(w), parallel.logProbabilityOf(w));
+                    if (sequential.parsable(w)) {
+                        assertEquals(sequential.leftmostDerivationFor(w), parallel.leftmostDerivationFor(w));
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** @return a random secondary structure with n letters, without empty pairs () */
+    private List<Terminal<Character>> randomStructure(final Random random, final int n) {
+        List<Terminal<Character>> res = new ArrayList<>();
+        int open = 0;
+        while (res.size() < n) {
+            int remaining = n - res.size();
+            double r = random.nextDouble();
+            boolean afterOpen = !res.isEmpty() && res.get(res.size() - 1) == OP;
+            if (open == remaining) {
+                res.add(CL);
+                open--;
+            } else if (r < 0.3 && open + 3 <= remaining) {
+                res.add(OP);
+                open++;
+            } else if (r < 0.6 && open > 0 && !afterOpen) {
+                res.add(CL);
+                open--;
+            } else {
+                res.add(DT);
+            }
+        }
+        return res;
+    }
+
+    @Test
+    public void testDontCareMatchesUnitProbabilities() throws UnparsableException {
+        // DONT_CARE skips all probability arithmetic; it must pick the same derivations as
+        // the Viterbi fill when every rule has probability 1
+        RandomGrammarExplorer generator = new RandomGrammarExplorer(4);
+        Random random = new Random(4711);
+        List<List<Terminal<Character>>> words = List.of(word, word2, List.of(DT), List.of(OP, DT, CL),
+                new ArrayList<>(Arrays.asList(OP, OP, DT, CL, DT, CL, DT)));
+        for (int i = 0; i < 200; i++) {
+            SecondaryStructureGrammar G = generator.randomGrammar(random, 5 + random.nextInt(40));
+            Map<Rule, Double> ones = new HashMap<>();
+            for (Rule rule : G.getAllRules()) ones.put(rule, 1.0);
+            SRFParser<Character> dontCare = new SRFParser<>(G, RuleProbModel.DONT_CARE);
+            SRFParser<Character> unit = new SRFParser<>(G, new StaticRuleProbModel(G, ones));
+            for (List<Terminal<Character>> w : words) {
+                assertEquals(unit.logProbabilityOf(w), dontCare.logProbabilityOf(w));
+                if (unit.parsable(w)) {
+                    assertEquals(unit.leftmostDerivationFor(w), dontCare.leftmostDerivationFor(w));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParseAllMatchesSingleWords() throws UnparsableException {
+        Random random = new Random(23);
+        Grammar<Character> anyStructure = new Grammar.Builder<Character>("anyStructure", A0)
+                .addRule(A0, DT)
+                .addRule(A0, A0, A0)
+                .addRule(A0, OP, A0, CL)
+                .build();
+        List<List<Terminal<Character>>> words = new ArrayList<>();
+        for (int i = 0; i < 30; i++) words.add(randomStructure(random, 1 + random.nextInt(60)));
+        SRFParser<Character> single = new SRFParser<>(anyStructure);
+        List<List<Rule>> expected = new ArrayList<>();
+        for (List<Terminal<Character>> w : words) expected.add(single.leftmostDerivationFor(w));
+
+        assertEquals(expected, new SRFParser<>(anyStructure).parseAll(words));
+        Assert.assertTrue(new SRFParser<>(anyStructure).parsableAll(words));
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            assertEquals(expected, StochasticParser.parseAll(words, () -> new SRFParser<>(anyStructure), pool));
+            List<List<Rule>> streamed = Collections.synchronizedList(new ArrayList<>(Collections.nCopies(words.size(), null)));
+            StochasticParser.parseAll(words, () -> new SRFParser<>(anyStructure), pool, (d, i) -> streamed.set(i, d));
+            assertEquals(expected, streamed);
+            int[][] ids = new int[words.size()][];
+            StochasticParser.parseAllRuleIds(words, () -> new SRFParser<>(anyStructure), pool, (d, i) -> ids[i] = d);
+            for (int i = 0; i < words.size(); i++) {
+                assertEquals(expected.get(i), Arrays.stream(ids[i]).mapToObj(anyStructure::getRule).toList());
+                Assert.assertArrayEquals(ids[i], single.leftmostDerivationIdsFor(words.get(i)));
+            }
+
+            words.add(7, List.of(OP, DT));
+            Assert.assertFalse(new SRFParser<>(anyStructure).parsableAll(words));
+            for (int variant = 0; variant < 2; variant++) {
+                try {
+                    if (variant == 0) new SRFParser<>(anyStructure).parseAll(words);
+                    else StochasticParser.parseAll(words, () -> new SRFParser<>(anyStructure), pool);
+                    Assert.fail("word 7 is not parsable");
+                } catch (UnparsableException e) {
+                    Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("word 7 "));
+                    assertEquals(7, e.getWordIndex());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testEncodedWordsMatchTerminalLists() throws UnparsableException {
+        Random random = new Random(5);
+        RandomGrammarExplorer generator = new RandomGrammarExplorer(4);
+        List<List<Terminal<Character>>> words = new ArrayList<>(List.of(word, word2));
+        for (int i = 0; i < 10; i++) words.add(randomStructure(random, 1 + random.nextInt(40)));
+        for (int i = 0; i < 50; i++) {
+            SecondaryStructureGrammar G = generator.randomGrammar(random, 5 + random.nextInt(40));
+            Map<Rule, Double> probs = new HashMap<>();
+            for (Rule rule : G.getAllRules()) probs.put(rule, random.nextDouble());
+            SRFParser<Character> lists = new SRFParser<>(G, new StaticRuleProbModel(G, probs));
+            SRFParser<Character> encoded = new SRFParser<>(G, new StaticRuleProbModel(G, probs));
+            for (List<Terminal<Character>> w : words) {
+                EncodedWord<Character> e = EncodedWord.of(w);
+                assertEquals(lists.parsable(w), encoded.parsable(e));
+                assertEquals(lists.logProbabilityOf(w), encoded.logProbabilityOf(e));
+                if (lists.parsable(w)) {
+                    assertEquals(lists.leftmostDerivationFor(w), encoded.leftmostDerivationFor(e));
+                    assertEquals(lists.mostLikelyLeftmostDerivationFor(w), encoded.mostLikelyLeftmostDerivationFor(e));
+                }
+            }
+        }
+    }
+
 }
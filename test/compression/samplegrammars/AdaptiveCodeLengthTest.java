@@ -0,0 +1,62 @@
+package compression.samplegrammars;
+
+import compression.GenericRNAEncoder;
+import compression.coding.BitSizeOnlyArithmeticEncoder;
+import compression.coding.Interval;
+import compression.data.FolderBasedDataset;
+import compression.grammar.RNAGrammar;
+import compression.grammar.RNAWithStructure;
+import compression.grammar.Rule;
+import compression.samplegrammars.model.AdaptiveCodeLength;
+import compression.samplegrammars.model.AdaptiveRuleProbModel;
+import compression.samplegrammars.model.RuleProbModel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class AdaptiveCodeLengthTest {
+
+	/**
+	 * Compares ln m! with the sum of ln i, across the end of the table of small values.
+	 */
+	@Test
+	public void testLnFactorial() {
+		double lnFactorial = 0;
+		for (int m = 1; m < 5000; m++) {
+			lnFactorial += Math.log(m);
+			Assert.assertEquals(lnFactorial, AdaptiveCodeLength.lnFactorial(m), 1e-12 * lnFactorial);
+		}
+		Assert.assertEquals(0, AdaptiveCodeLength.lnFactorial(0), 0);
+	}
+
+	/**
+	 * Replays derivations of RNAs through the adaptive model and checks that the closed form
+	 * gives the same code length, up to the rounding of the probabilities of the model.
+	 */
+	@Test
+	public void testAgreesWithAdaptiveModel() {
+		for (RNAGrammar grammar : List.of(new DowellGrammar1Bound(true).getGrammar(),
+				new DowellGrammar1Bound(false).getGrammar())) {
+			for (RNAWithStructure rna : new FolderBasedDataset("TestDataSet")) {
+				List<Rule> derivation = new GenericRNAEncoder(RuleProbModel.DONT_CARE, new BitSizeOnlyArithmeticEncoder(),
+						grammar, grammar.getStartSymbol()).leftmostDerivationFor(rna);
+				RuleProbModel model = new AdaptiveRuleProbModel(grammar);
+				BitSizeOnlyArithmeticEncoder encoder = new BitSizeOnlyArithmeticEncoder();
+				double lnProbability = 0;
+				long[] ruleUses = new long[grammar.size()];
+				for (Rule rule : derivation) {
+					Interval interval = model.getIntervalFor(rule);
+					encoder.encodeNext(interval);
+					lnProbability += interval.getLnLength();
+					ruleUses[grammar.getRuleId(rule)]++;
+				}
+				double closedForm = AdaptiveCodeLength.lnProbability(grammar, ruleUses);
+				// rounding down the probabilities makes the replayed code only slightly longer
+				Assert.assertTrue(lnProbability <= closedForm);
+				Assert.assertEquals(closedForm, lnProbability, 1e-6);
+				Assert.assertEquals(encoder.getFinalPrecision(), AdaptiveCodeLength.getFinalPrecision(grammar, derivation));
+			}
+		}
+	}
+}
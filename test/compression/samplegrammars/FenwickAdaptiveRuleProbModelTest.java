@@ -0,0 +1,108 @@
+package compression.samplegrammars;
+
+import compression.GenericRNADecoder;
+import compression.GenericRNAEncoder;
+import compression.coding.BigDecimalInterval;
+import compression.coding.FrequencyInterval;
+import compression.coding.IntegerArithmeticDecoder;
+import compression.coding.IntegerArithmeticEncoder;
+import compression.coding.Interval;
+import compression.data.FolderBasedDataset;
+import compression.grammar.Category;
+import compression.grammar.NonTerminal;
+import compression.grammar.RNAGrammar;
+import compression.grammar.RNAWithStructure;
+import compression.grammar.Rule;
+import compression.samplegrammars.model.AdaptiveRuleProbModel;
+import compression.samplegrammars.model.FenwickAdaptiveRuleProbModel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+public class FenwickAdaptiveRuleProbModelTest {
+
+	/**
+	 * Uses random rules in both adaptive models and checks that they give the same intervals.
+	 */
+	@Test
+	public void testAgreesWithAdaptiveModel() {
+		RNAGrammar grammar = new DowellGrammar1Bound(true).getGrammar();
+		List<Rule> rules = new ArrayList<>(grammar.getAllRules());
+		AdaptiveRuleProbModel adaptive = new AdaptiveRuleProbModel(grammar);
+		FenwickAdaptiveRuleProbModel fenwick = new FenwickAdaptiveRuleProbModel(grammar);
+		Random random = new Random(42);
+		for (int i = 0; i < 5000; i++) {
+			Rule rule = rules.get(random.nextInt(rules.size()));
+			Assert.assertEquals(new HashSet<>(adaptive.getIntervalList(rule.getLeft())),
+					new HashSet<>(fenwick.getIntervalList(rule.getLeft())));
+			Interval expected = adaptive.getIntervalFor(rule), actual = fenwick.getIntervalFor(rule);
+			Assert.assertEquals(expected, actual);
+			Assert.assertEquals(expected.getLnLength(), actual.getLnLength(), 0);
+		}
+	}
+
+	/**
+	 * Looks up rules by id instead of by rule, in both adaptive models.
+	 */
+	@Test
+	public void testRuleIds() {
+		RNAGrammar grammar = new DowellGrammar1Bound(true).getGrammar();
+		AdaptiveRuleProbModel adaptive = new AdaptiveRuleProbModel(grammar);
+		FenwickAdaptiveRuleProbModel fenwick = new FenwickAdaptiveRuleProbModel(grammar);
+		Random random = new Random(42);
+		for (int i = 0; i < 1000; i++) {
+			int ruleId = random.nextInt(grammar.size());
+			double lnProb = fenwick.lnProb(ruleId);
+			Assert.assertEquals(adaptive.lnProb(ruleId), lnProb, 0);
+			Assert.assertEquals(lnProb, fenwick.lnProb(ruleId), 0);
+			Interval interval = fenwick.getIntervalFor(ruleId);
+			Assert.assertEquals(lnProb, interval.getLnLength(), 0);
+			Assert.assertEquals(adaptive.getIntervalFor(grammar.getRule(ruleId)), interval);
+		}
+	}
+
+	/**
+	 * Finds rules by the cumulative counts in their intervals and by intervals of other classes.
+	 */
+	@Test
+	public void testRhsFor() {
+		RNAGrammar grammar = new DowellGrammar1Bound(true).getGrammar();
+		NonTerminal lhs = grammar.getStartSymbol();
+		FenwickAdaptiveRuleProbModel model = new FenwickAdaptiveRuleProbModel(grammar);
+		List<Rule> rules = new ArrayList<>(grammar.getRules(lhs));
+		model.getIntervalFor(rules.get(0));
+		for (int i = 0; i < rules.size(); i++) {
+			FrequencyInterval interval = (FrequencyInterval) model.getIntervalList(lhs).get(i);
+			Assert.assertEquals(interval, model.getFrequencies(lhs).getIntervalContaining(interval.getCumLow()));
+			Assert.assertEquals(interval, model.getFrequencies(lhs).getIntervalContaining(
+					interval.getCumLow() + interval.getFreq() - 1));
+			List<Category> rhs = model.getRhsFor(
+					new BigDecimalInterval(interval.getLowerBound(), interval.getLength()), lhs);
+			Assert.assertEquals(Arrays.asList(rules.get(i).getRight()), rhs);
+		}
+		Assert.assertEquals(2 * rules.size() + 1, model.getFrequencies(lhs).getTotal());
+	}
+
+	/**
+	 * Encodes and decodes RNAs with the integer coder, which searches the intervals by cumulative count,
+	 * and checks that the encodings are the same as with {@link AdaptiveRuleProbModel}.
+	 */
+	@Test
+	public void testEncodeDecodeRNAs() {
+		RNAGrammar grammar = new DowellGrammar1Bound(true).getGrammar();
+		for (RNAWithStructure rna : new FolderBasedDataset("TestDataSet")) {
+			String bits = new GenericRNAEncoder(new FenwickAdaptiveRuleProbModel(grammar),
+					new IntegerArithmeticEncoder(), grammar, grammar.getStartSymbol()).encodeRNA(rna);
+			Assert.assertEquals(new GenericRNAEncoder(new AdaptiveRuleProbModel(grammar),
+					new IntegerArithmeticEncoder(), grammar, grammar.getStartSymbol()).encodeRNA(rna), bits);
+			GenericRNADecoder decoder = new GenericRNADecoder(new FenwickAdaptiveRuleProbModel(grammar),
+					new IntegerArithmeticDecoder(bits), grammar.getStartSymbol());
+			Assert.assertEquals(rna, decoder.decode());
+		}
+	}
+}
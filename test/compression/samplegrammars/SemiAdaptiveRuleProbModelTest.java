@@ -0,0 +1,53 @@
+package compression.samplegrammars;
+
+import compression.grammar.CharTerminal;
+import compression.grammar.Grammar;
+import compression.grammar.NonTerminal;
+import compression.grammar.RNAGrammar;
+import compression.grammar.RNAWithStructure;
+import compression.grammar.Rule;
+import compression.grammar.SecondaryStructureGrammar;
+import compression.samplegrammars.model.SemiAdaptiveRuleProbModel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class SemiAdaptiveRuleProbModelTest {
+
+	/**
+	 * Looks up the rules of the derivation of one RNA by id instead of by rule; unused rules have
+	 * probability 0, and the rules of an unused nonterminal have no interval.
+	 */
+	@Test
+	public void testRuleIds() {
+		NonTerminal S = new NonTerminal("S");
+		NonTerminal A = new NonTerminal("A");
+		NonTerminal B = new NonTerminal("B");
+		CharTerminal u = new CharTerminal('.');
+		Rule rSA = new Rule(S, A);
+		Rule rSB = new Rule(S, B);
+		Rule rAu = new Rule(A, u);
+		Rule rBu = new Rule(B, u);
+		Rule rBoBc = new Rule(B, new CharTerminal('('), B, new CharTerminal(')'));
+		SecondaryStructureGrammar ssg = SecondaryStructureGrammar.fromCheap(
+				new Grammar.Builder<Character>("unambiguous", S).addRules(List.of(rSA, rSB, rAu, rBu, rBoBc)).build());
+		RNAGrammar G = RNAGrammar.from(ssg.convertToSRF(), false);
+
+		// S => B => ( B ) => ( . )
+		SemiAdaptiveRuleProbModel model = new SemiAdaptiveRuleProbModel(G, new RNAWithStructure("cag", "(.)"));
+
+		for (int id = 0; id < G.size(); id++) {
+			Rule rule = G.getRule(id);
+			Assert.assertEquals(model.getIntervalFor(rule), model.getIntervalFor(id));
+			if (rule.getLeft().equals(A)) {
+				Assert.assertNull(model.getIntervalFor(id));
+				Assert.assertEquals(Double.NEGATIVE_INFINITY, model.lnProb(id), 0);
+			} else {
+				Assert.assertEquals(model.getIntervalFor(id).getLnLength(), model.lnProb(id), 0);
+			}
+		}
+		Assert.assertEquals(0, model.lnProb(G.getRuleId(new Rule(S, B))), 1e-9);
+		Assert.assertEquals(Double.NEGATIVE_INFINITY, model.lnProb(G.getRuleId(new Rule(S, A))), 0);
+	}
+}
@@ -0,0 +1,45 @@
+package compression.samplegrammars;
+
+import compression.coding.Interval;
+import compression.grammar.NonTerminal;
+import compression.grammar.RNAGrammar;
+import compression.grammar.Rule;
+import compression.samplegrammars.model.RuleProbModel;
+import compression.samplegrammars.model.StaticRuleProbModel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class StaticRuleProbModelTest {
+
+	/**
+	 * Looks up rules by id instead of by rule; the rules of a nonterminal without counts have no
+	 * interval and probability 0.
+	 */
+	@Test
+	public void testRuleIds() {
+		RNAGrammar grammar = new DowellGrammar1Bound(true).getGrammar();
+		NonTerminal unused = grammar.getNonTerminal(grammar.getLeftIndex(0));
+		Map<Rule, Long> counts = new HashMap<>();
+		for (int id = 0; id < grammar.size(); id++) {
+			Rule rule = grammar.getRule(id);
+			counts.put(rule, rule.getLeft().equals(unused) ? 0L : id + 1L);
+		}
+		StaticRuleProbModel model = new StaticRuleProbModel(grammar, RuleProbModel.computeRuleProbs(grammar, counts));
+
+		for (int id = 0; id < grammar.size(); id++) {
+			Rule rule = grammar.getRule(id);
+			if (rule.getLeft().equals(unused)) {
+				Assert.assertEquals(Double.NEGATIVE_INFINITY, model.lnProb(id), 0);
+				final int ruleId = id;
+				Assert.assertThrows(IllegalArgumentException.class, () -> model.getIntervalFor(ruleId));
+			} else {
+				Interval interval = model.getIntervalFor(id);
+				Assert.assertEquals(model.getIntervalFor(rule), interval);
+				Assert.assertEquals(interval.getLnLength(), model.lnProb(id), 0);
+			}
+		}
+	}
+}